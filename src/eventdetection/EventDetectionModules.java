@@ -4,8 +4,14 @@
 package eventdetection;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.function.Function;
 
 import edu.pdx.cs.niagarino.PhysicalQueryPlan;
@@ -13,6 +19,7 @@ import edu.pdx.cs.niagarino.PhysicalQueryPlan.OperatorType;
 import edu.pdx.cs.niagarino.operator.AggregationFunction;
 import edu.pdx.cs.niagarino.operator.AggregationType;
 import edu.pdx.cs.niagarino.operator.Derive;
+import edu.pdx.cs.niagarino.operator.Multiplex;
 import edu.pdx.cs.niagarino.operator.Operator;
 import edu.pdx.cs.niagarino.operator.OrderedAggregate;
 import edu.pdx.cs.niagarino.operator.Print;
@@ -29,6 +36,8 @@ import kn.uni.inf.niagarino.operator.eatd.Distinct;
 import kn.uni.inf.niagarino.operator.eatd.LLH;
 import kn.uni.inf.niagarino.operator.eatd.RandomEvents;
 import kn.uni.inf.niagarino.util.TokensDerivationFunction;
+import twistor.BinaryTweetFormat;
+import twistor.GlobalParameters;
 
 /**
  * Class for running different event detection approaches for the ECIR 2019 experiment.
@@ -41,10 +50,20 @@ public class EventDetectionModules {
 	/** Twitter schema of tuples in test data set. */
 	private static final Schema TWITTER_SCHEMA = new Schema(1, new Attribute("tweetid", Long.class),
 			new Attribute("creationdate", Date.class), new Attribute("content", String.class));
-	/** Datasource. */
+	/** Twitter schema with the derived tokens, the tuples of a binary stream file. */
+	private static final Schema TOKENS_SCHEMA = new Schema(1, new Attribute("tweetid", Long.class),
+			new Attribute("creationdate", Date.class), new Attribute("content", String.class),
+			new Attribute("tokens", ArrayList.class));
+	/** Tweets the Twistor stream can create in advance of the query. */
+	private static final int TWISTOR_QUEUE_CAPACITY = 10000;
+	/** Datasource, null if the Twistor stream is created while the queries run. */
 	private String streamFile;
 	/** OutputFolder. */
 	private String outputFolder;
+	/** Replay the tokens of a text stream file from its cache (see TokenCache) instead of scanning and splitting it. */
+	private boolean tokenCache = true;
+	/** Aggregate sliding windows incrementally (see SlidingAggregate) instead of every window from its tuples. */
+	private boolean incrementalWindows = true;
 
 	public EventDetectionModules(final String streamFile, final String outputF) throws Exception {
 		this.streamFile = streamFile;
@@ -52,31 +71,244 @@ public class EventDetectionModules {
 	}
 
 	/**
-	 * Preprocessing steps.
+	 * Runs the approaches on a Twistor stream which is created with the current GlobalParameters while the query runs,
+	 * without writing it to a file. Every run creates the same stream, so a random SEED is fixed here.
+	 * @param outputF output folder
+	 */
+	public EventDetectionModules(final String outputF) {
+		this.streamFile = null;
+		this.outputFolder = outputF;
+		if (GlobalParameters.SEED == -1) {
+			GlobalParameters.SEED = new SplittableRandom().nextLong();
+		}
+	}
+
+	/**
+	 * @param tokenCache true (the default) to replay the tokens of a text stream file from its cache, which is created
+	 *        by the first run, false to scan and split the stream file in every run
+	 */
+	public void setTokenCache(final boolean tokenCache) {
+		this.tokenCache = tokenCache;
+	}
+
+	/**
+	 * @param incrementalWindows true (the default) to aggregate the sliding windows of Shifty incrementally, false to
+	 *        aggregate every window from its tuples
+	 */
+	public void setIncrementalWindows(final boolean incrementalWindows) {
+		this.incrementalWindows = incrementalWindows;
+	}
+
+	/**
+	 * Preprocessing steps. The plan is not kept, so the approaches can run concurrently (see ExperimentSweep).
+	 * @param plan physical query plan the preprocessing is added to
 	 * @param unnest flag for unnesting
-	 * @return physical query plan
+	 * @return last operator of the preprocessing
 	 */
-	private PhysicalQueryPlan preprocess(final boolean unnest) {
-		// scan file
-		final Operator scan = new Scan("scan", TWITTER_SCHEMA, this.streamFile, false, "\t");
-		// derives tokens of tweet
+	private Operator preprocess(final PhysicalQueryPlan plan, final boolean unnest) throws IOException {
 		Function<String, String> cleanTerm = check -> { return TokensDerivationFunction.getCleanTerm(check); };
-		final Operator deriveTokens = new Derive(scan.getOutputSchema(), new TokensDerivationFunction(2, "\\s", cleanTerm));
+		final Operator deriveTokens;
+		if (this.streamFile != null && BinaryTweetFormat.isBinary(this.streamFile)) {
+			// the binary stream already contains the tokens
+			deriveTokens = new TwistorBinaryScan("scan", TOKENS_SCHEMA, this.streamFile, cleanTerm);
+			plan.addOperator(deriveTokens, OperatorType.SOURCE);
+		} else if (this.streamFile != null && this.tokenCache) {
+			// the tokens of the stream file are split and cleaned once
+			deriveTokens = new TokenCacheScan("scan", TOKENS_SCHEMA, TokenCache.get(this.streamFile, cleanTerm));
+			plan.addOperator(deriveTokens, OperatorType.SOURCE);
+		} else {
+			// scan file or create the stream
+			final Operator scan = this.streamFile == null ? new TwistorScan("scan", TWITTER_SCHEMA, TWISTOR_QUEUE_CAPACITY)
+					: new Scan("scan", TWITTER_SCHEMA, this.streamFile, false, "\t");
+			// derives tokens of tweet
+			deriveTokens = new Derive(scan.getOutputSchema(), new TokensDerivationFunction(2, "\\s", cleanTerm));
+			// add operators
+			plan.addOperator(scan, OperatorType.SOURCE);
+			plan.addOperator(deriveTokens);
+			// add streams
+			plan.addStream(scan, deriveTokens);
+		}
+		if (!unnest) {
+			return deriveTokens;
+		}
+		// unnest nested tokens
+		final Operator unnestTokens = new Unnest(deriveTokens.getOutputSchema(), 3, "token");
+		plan.addOperator(unnestTokens);
+		plan.addStream(deriveTokens, unnestTokens);
+		return unnestTokens;
+	}
 
-		// physical query plan
+	/**
+	 * Detection approach with its parameters, the part of a query plan following the preprocessing. It runs alone
+	 * (run*) or together with other approaches on one scan of the stream (runMultiQuery).
+	 */
+	public static final class Detection {
+		/** True if the approach needs the unnested tokens. */
+		private final boolean unnest;
+		private final DetectionPlan plan;
+		/** Size of the tumbling windows of an approach on the token counts of panes, 0 if it has no pane plan. */
+		private final long windowSize;
+		private final PanePlan panePlan;
+
+		private Detection(final boolean unnest, final DetectionPlan plan) {
+			this(unnest, plan, 0, null);
+		}
+
+		private Detection(final boolean unnest, final DetectionPlan plan, final long windowSize, final PanePlan panePlan) {
+			this.unnest = unnest;
+			this.plan = plan;
+			this.windowSize = windowSize;
+			this.panePlan = panePlan;
+		}
+	}
+
+	/** Adds the operators of an approach behind the last operator of the preprocessing. */
+	private interface DetectionPlan {
+		/** @return output of the sink */
+		PrintStream add(PhysicalQueryPlan plan, Operator last) throws IOException;
+	}
+
+	/** Adds the operators of an approach behind the token counts of panes (see PaneCount). */
+	private interface PanePlan {
+		/**
+		 * @param tokens schema of the unnested tuples the panes are counted from
+		 * @return output of the sink
+		 */
+		PrintStream add(PhysicalQueryPlan plan, Operator panes, Schema tokens, long paneLength) throws IOException;
+	}
+
+	/**
+	 * Runs one approach on its own scan of the stream.
+	 * @param detection approach
+	 * @throws Exception exception
+	 */
+	private void run(final Detection detection) throws Exception {
 		final PhysicalQueryPlan plan = new PhysicalQueryPlan(false);
-		// add operators
-		plan.addOperator(scan, OperatorType.SOURCE);
-		plan.addOperator(deriveTokens);
-		// add streams
-		plan.addStream(scan, deriveTokens);
-		if (unnest) {
-			// unnest nested tokens
-			final Operator unnestTokens = new Unnest(deriveTokens.getOutputSchema(), 3, "token");
+		final Operator last = this.preprocess(plan, detection.unnest);
+		final PrintStream output = detection.plan.add(plan, last);
+		// execute stream
+		plan.execute(output);
+	}
+
+	/**
+	 * Runs several approaches (e.g. the parameters of a sweep) on a single scan and tokenization of the stream. The
+	 * tokens are multiplexed to all approaches, every approach has its own sink and writes the same result file as if
+	 * it ran alone. The scan runs at the speed of the slowest approach. Approaches on tumbling windows of token counts
+	 * (topN) share the counts: the tokens are counted once per pane, whose length divides all of their window sizes,
+	 * and the windows are merged from the panes, so all window sizes cost about as much as one.
+	 *
+	 * @param detections approaches, see shifty, llh, randomEvents and topN
+	 * @throws Exception exception
+	 */
+	public void runMultiQuery(final List<Detection> detections) throws Exception {
+		final PhysicalQueryPlan plan = new PhysicalQueryPlan(false);
+		final Operator tokens = this.preprocess(plan, false);
+		final List<Detection> nested = new ArrayList<>();
+		final List<Detection> unnested = new ArrayList<>();
+		final List<Detection> paned = new ArrayList<>();
+		for (final Detection detection : detections) {
+			(detection.panePlan != null ? paned : detection.unnest ? unnested : nested).add(detection);
+		}
+		if (paned.size() == 1) {
+			// nothing to share
+			unnested.add(paned.remove(0));
+		}
+		final List<PrintStream> outputs = new ArrayList<>();
+		final List<Operator> tokensSources = this.multiplex(plan, tokens, nested.size()
+				+ (unnested.isEmpty() && paned.isEmpty() ? 0 : 1));
+		for (int i = 0; i < nested.size(); i++) {
+			outputs.add(nested.get(i).plan.add(plan, tokensSources.get(i)));
+		}
+		if (!unnested.isEmpty() || !paned.isEmpty()) {
+			// unnest nested tokens once for all approaches
+			final Operator unnestTokens = new Unnest(tokens.getOutputSchema(), 3, "token");
 			plan.addOperator(unnestTokens);
-			plan.addStream(deriveTokens, unnestTokens);
+			plan.addStream(tokensSources.get(nested.size()), unnestTokens);
+			final List<Operator> unnestSources = this.multiplex(plan, unnestTokens,
+					unnested.size() + (paned.isEmpty() ? 0 : 1));
+			for (int i = 0; i < unnested.size(); i++) {
+				outputs.add(unnested.get(i).plan.add(plan, unnestSources.get(i)));
+			}
+			if (!paned.isEmpty()) {
+				// count the tokens once per pane for all window sizes
+				long paneLength = 0;
+				for (final Detection detection : paned) {
+					paneLength = gcd(paneLength, detection.windowSize);
+				}
+				final Operator panes = new PaneCount(unnestTokens.getOutputSchema(), 4, paneLength);
+				plan.addOperator(panes);
+				plan.addStream(unnestSources.get(unnested.size()), panes);
+				final List<Operator> paneSources = this.multiplex(plan, panes, paned.size());
+				for (int i = 0; i < paned.size(); i++) {
+					outputs.add(paned.get(i).panePlan.add(plan, paneSources.get(i), unnestTokens.getOutputSchema(),
+							paneLength));
+				}
+			}
+		}
+		// execute stream, the statistics line is written to every output
+		plan.execute(new PrintStream(new TeeOutputStream(outputs)));
+	}
+
+	/**
+	 * Operators the given amount of approaches read the tuples of source from.
+	 * @return source itself for a single approach, otherwise a copy of the tuples for every approach
+	 */
+	private List<Operator> multiplex(final PhysicalQueryPlan plan, final Operator source, final int outputs) {
+		if (outputs <= 1) {
+			return Collections.singletonList(source);
+		}
+		final Operator multiplex = new Multiplex(source.getOutputSchema(), outputs);
+		plan.addOperator(multiplex);
+		plan.addStream(source, multiplex);
+		final List<Operator> copies = new ArrayList<>();
+		for (int i = 0; i < outputs; i++) {
+			final Operator copy = new TupleCopy(source.getOutputSchema());
+			plan.addOperator(copy);
+			plan.addStream(multiplex, copy);
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	private static long gcd(final long a, final long b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+
+	/** Writes to all outputs of a multi-query or of the thresholds of Shifty. */
+	private static final class TeeOutputStream extends OutputStream {
+		private final List<PrintStream> outputs;
+
+		private TeeOutputStream(final List<PrintStream> outputs) {
+			this.outputs = outputs;
+		}
+
+		@Override
+		public void write(final int b) {
+			for (final PrintStream output : this.outputs) {
+				output.write(b);
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			for (final PrintStream output : this.outputs) {
+				output.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() {
+			for (final PrintStream output : this.outputs) {
+				output.flush();
+			}
+		}
+
+		@Override
+		public void close() {
+			for (final PrintStream output : this.outputs) {
+				output.close();
+			}
 		}
-		return plan;
 	}
 
 	/**
@@ -89,18 +321,19 @@ public class EventDetectionModules {
 	 * @throws Exception exception
 	 */
 	public void runShifty(final String name, final int threshold) throws Exception {
-		final PhysicalQueryPlan plan = this.preprocess(true);
-		final Operator last = plan.getLastStreamOperator();
-		// create windows and calculate values
-		final Operator tupleWindowIDF = new ValueWindow(last.getOutputSchema(), 60000, 60000);
-		final Operator idf = new OrderedAggregate(tupleWindowIDF.getOutputSchema(), new int[]{4}, new int[]{0},
-				new AggregationFunction(AggregationType.IDF, LimitationType.LTWINDOWAVERAGE));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
-		final Operator tupleWindowSShifts = new ValueWindow(idf.getOutputSchema(), 120000, 60000);
-		final Operator shift = new OrderedAggregate(tupleWindowSShifts.getOutputSchema(), new int[]{1}, new int[]{2},
-				new AggregationFunction(AggregationType.SHIFT, LimitationType.GTWINDOWAVERAGE));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
-		final Operator tupleWindowTShifts = new ValueWindow(shift.getOutputSchema(), 240000, 60000);
-		final Operator tshift = new OrderedAggregate(tupleWindowTShifts.getOutputSchema(), new int[]{1}, new int[]{2},
-				new AggregationFunction(AggregationType.SUM, 4, LimitationType.GTVALUE, threshold));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
+		this.run(this.shifty(name, threshold));
+	}
+
+	/**
+	 * Approach of the MSDM paper, see runShifty.
+	 */
+	public Detection shifty(final String name, final int threshold) {
+		return new Detection(true, (plan, last) -> this.addShifty(plan, last, name, threshold));
+	}
+
+	private PrintStream addShifty(final PhysicalQueryPlan plan, final Operator last, final String name,
+			final int threshold) throws IOException {
+		final Operator tshift = this.addShiftyScores(plan, last, threshold);
 		// projects away unnecessary attributes
 		final Operator projection = new Projection(tshift.getOutputSchema(), new int[]{0, 1});
 		// distinct events for hourly windows
@@ -109,28 +342,97 @@ public class EventDetectionModules {
 		PrintStream output = new PrintStream(new File(this.outputFolder + "/" + name + "_" + threshold + ".txt"));
 		final Operator printer = new Print(distinct.getOutputSchema(), false, output);
 
-		plan.addOperator(tupleWindowIDF);
-		plan.addOperator(idf);
-		plan.addOperator(tupleWindowSShifts);
-		plan.addOperator(shift);
-		plan.addOperator(tupleWindowTShifts);
-		plan.addOperator(tshift);
 		plan.addOperator(projection);
 		plan.addOperator(distinct);
 		plan.addOperator(printer, OperatorType.SINK);
 
 		// add streams
-		plan.addStream(last, tupleWindowIDF);
-		plan.addStream(tupleWindowIDF, idf);
-		plan.addStream(idf, tupleWindowSShifts);
-		plan.addStream(tupleWindowSShifts, shift);
-		plan.addStream(shift, tupleWindowTShifts);
-		plan.addStream(tupleWindowTShifts, tshift);
 		plan.addStream(tshift, projection);
 		plan.addStream(projection, distinct);
 		plan.addStream(distinct, printer);
-		// execute stream
-		plan.execute(output);
+		return output;
+	}
+
+	/**
+	 * Starts the approach of the MSDM paper for several thresholds in a single pass over the stream, the results are
+	 * the same as the ones of runShifty for every threshold.
+	 *
+	 * @param name
+	 *        string of name
+	 * @param thresholds
+	 *         thresholds to become an event
+	 * @throws Exception exception
+	 */
+	public void runShifty(final String name, final int[] thresholds) throws Exception {
+		this.run(this.shifty(name, thresholds));
+	}
+
+	/**
+	 * Approach of the MSDM paper for several thresholds, see runShifty. The summed shifts are computed once with the
+	 * lowest threshold, a ThresholdSink applies every threshold and writes the result file of every threshold.
+	 */
+	public Detection shifty(final String name, final int[] thresholds) {
+		return new Detection(true, (plan, last) -> {
+			int minimum = Integer.MAX_VALUE;
+			for (final int threshold : thresholds) {
+				minimum = Math.min(minimum, threshold);
+			}
+			final Operator tshift = this.addShiftyScores(plan, last, minimum);
+			// print results of every threshold
+			final List<PrintStream> outputs = new ArrayList<>();
+			for (final int threshold : thresholds) {
+				outputs.add(new PrintStream(new File(this.outputFolder + "/" + name + "_" + threshold + ".txt")));
+			}
+			final Operator printer = new ThresholdSink(tshift.getOutputSchema(), 1, 2, thresholds,
+					outputs.toArray(new PrintStream[outputs.size()]), 59);
+
+			plan.addOperator(printer, OperatorType.SINK);
+			plan.addStream(tshift, printer);
+			// the statistics line is written to every output
+			return new PrintStream(new TeeOutputStream(outputs));
+		});
+	}
+
+	/**
+	 * Adds the summed shifts of the tokens of Shifty behind the unnested tokens.
+	 * @param threshold minimal summed shift
+	 * @return aggregate of the summed shifts
+	 */
+	private Operator addShiftyScores(final PhysicalQueryPlan plan, final Operator last, final int threshold) {
+		// create windows and calculate values
+		final Operator tupleWindowIDF = new ValueWindow(last.getOutputSchema(), 60000, 60000);
+		final Operator idf = new OrderedAggregate(tupleWindowIDF.getOutputSchema(), new int[]{4}, new int[]{0},
+				new AggregationFunction(AggregationType.IDF, LimitationType.LTWINDOWAVERAGE));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
+		plan.addOperator(tupleWindowIDF);
+		plan.addOperator(idf);
+		plan.addStream(last, tupleWindowIDF);
+		plan.addStream(tupleWindowIDF, idf);
+		final Operator shift = this.addSlidingAggregate(plan, idf, 120000, 60000,
+				new AggregationFunction(AggregationType.SHIFT, LimitationType.GTWINDOWAVERAGE));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
+		return this.addSlidingAggregate(plan, shift, 240000, 60000,
+				new AggregationFunction(AggregationType.SUM, 4, LimitationType.GTVALUE, threshold));//, new AggregationFunction(AggregationType.TOPCOOC, 5));
+	}
+
+	/**
+	 * Adds a sliding window and an aggregate of the tokens (attribute 1) of the windows behind source.
+	 * @param function aggregation function of the values (attribute 2)
+	 * @return aggregate
+	 */
+	private Operator addSlidingAggregate(final PhysicalQueryPlan plan, final Operator source, final long size,
+			final long slide, final AggregationFunction function) {
+		if (this.incrementalWindows) {
+			final Operator aggregate = SlidingAggregate.create(source.getOutputSchema(), 1, 2, size, slide, function);
+			plan.addOperator(aggregate);
+			plan.addStream(source, aggregate);
+			return aggregate;
+		}
+		final Operator window = new ValueWindow(source.getOutputSchema(), size, slide);
+		final Operator aggregate = new OrderedAggregate(window.getOutputSchema(), new int[]{1}, new int[]{2}, function);
+		plan.addOperator(window);
+		plan.addOperator(aggregate);
+		plan.addStream(source, window);
+		plan.addStream(window, aggregate);
+		return aggregate;
 	}
 
 	/**
@@ -143,9 +445,18 @@ public class EventDetectionModules {
 	 * @throws Exception exception
 	 */
 	public void runLLH(final String name, final int topN, final int iws) throws Exception {
-		final PhysicalQueryPlan plan = this.preprocess(false);
-		final Operator last = plan.getLastStreamOperator();
+		this.run(this.llh(name, topN, iws));
+	}
+
+	/**
+	 * LLH analysis, see runLLH.
+	 */
+	public Detection llh(final String name, final int topN, final int iws) {
+		return new Detection(false, (plan, last) -> this.addLLH(plan, last, name, topN, iws));
+	}
 
+	private PrintStream addLLH(final PhysicalQueryPlan plan, final Operator last, final String name, final int topN,
+			final int iws) throws IOException {
 		// create windows
 		final Operator tupleWindow = new ValueWindow(last.getOutputSchema(), iws, iws);
 		final Operator llh = new LLH("LLH", tupleWindow.getOutputSchema(), 3, topN);
@@ -160,8 +471,7 @@ public class EventDetectionModules {
 		plan.addStream(last, tupleWindow);
 		plan.addStream(tupleWindow, llh);
 		plan.addStream(llh, printer);
-		// execute stream
-		plan.execute(output);
+		return output;
 	}
 
 	   /**
@@ -174,9 +484,18 @@ public class EventDetectionModules {
 	    * @throws Exception exception
 	    */
 	   public void runRandomEvents(final String name, final int n, final int iws) throws Exception {
-	      final PhysicalQueryPlan plan = this.preprocess(false);
-	      final Operator last = plan.getLastStreamOperator();
+	      this.run(this.randomEvents(name, n, iws));
+	   }
+
+	   /**
+	    * RandomEvents analysis, see runRandomEvents.
+	    */
+	   public Detection randomEvents(final String name, final int n, final int iws) {
+	      return new Detection(false, (plan, last) -> this.addRandomEvents(plan, last, name, n, iws));
+	   }
 
+	   private PrintStream addRandomEvents(final PhysicalQueryPlan plan, final Operator last, final String name,
+	         final int n, final int iws) throws IOException {
 	      // create windows
 	      final Operator tupleWindow = new ValueWindow(last.getOutputSchema(), iws, iws);
 	      final Operator randomTopics = new RandomEvents("RandomEvents", tupleWindow.getOutputSchema(), 3, n);
@@ -191,8 +510,7 @@ public class EventDetectionModules {
 	      plan.addStream(last, tupleWindow);
 	      plan.addStream(tupleWindow, randomTopics);
 	      plan.addStream(randomTopics, printer);
-	      // execute stream
-	      plan.execute(output);
+	      return output;
 	   }
 
 	   /**
@@ -205,8 +523,20 @@ public class EventDetectionModules {
 	    * @throws Exception exception
 	    */
 	   public void runTopN(final String name, final int topN, final int iws) throws Exception {
-	      final PhysicalQueryPlan plan = this.preprocess(true);
-	      final Operator last = plan.getLastStreamOperator();
+	      this.run(this.topN(name, topN, iws));
+	   }
+
+	   /**
+	    * Really simple approach, see runTopN. In a multi-query it counts the tokens of its windows from panes shared
+	    * with the other topN approaches.
+	    */
+	   public Detection topN(final String name, final int topN, final int iws) {
+	      return new Detection(true, (plan, last) -> this.addTopN(plan, last, name, topN, iws), iws,
+	            (plan, panes, tokens, paneLength) -> this.addPaneTopN(plan, panes, tokens, paneLength, name, topN, iws));
+	   }
+
+	   private PrintStream addTopN(final PhysicalQueryPlan plan, final Operator last, final String name, final int topN,
+	         final int iws) throws IOException {
 	      // create windows with window size
 	      final Operator tupleWindow = new ValueWindow(last.getOutputSchema(), iws, iws);
 	      // aggregate
@@ -223,7 +553,28 @@ public class EventDetectionModules {
 	      plan.addStream(last, tupleWindow);
 	      plan.addStream(tupleWindow, aggregate);
 	      plan.addStream(aggregate, printer);
-	      // execute
-	      plan.execute(output);
+	      return output;
+	   }
+
+	   /**
+	    * TopN of the windows merged from the token counts of panes, the same output as addTopN.
+	    */
+	   private PrintStream addPaneTopN(final PhysicalQueryPlan plan, final Operator panes, final Schema tokens,
+	         final long paneLength, final String name, final int topN, final int iws) throws IOException {
+	      // the same schema as the aggregate on the window
+	      final Schema schema = new OrderedAggregate(tokens, new int[] { 4 }, new int[] { 0 }, new AggregationFunction(
+	            AggregationType.COUNT, OrderingType.DESC, LimitationType.TUPLECOUNT, topN)).getOutputSchema();
+	      // merge the panes of a window and aggregate
+	      final Operator aggregate = new PaneTopN(schema, iws, paneLength, topN);
+	      // print
+	      PrintStream output = new PrintStream(new File(this.outputFolder + "/" + name + "_" + topN + "_" + iws + ".txt"));
+	      final Operator printer = new Print(aggregate.getOutputSchema(), false, output);
+
+	      plan.addOperator(aggregate);
+	      plan.addOperator(printer, OperatorType.SINK);
+
+	      plan.addStream(panes, aggregate);
+	      plan.addStream(aggregate, printer);
+	      return output;
 	   }
 }
@@ -0,0 +1,178 @@
+/*
+ * @(#)ExperimentSweep.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kn.uni.inf.niagarino.paging.PropertiesReader;
+
+/**
+ * Runs the plans of a parameter sweep concurrently instead of one after another.
+ *
+ * Every plan runs on its own worker, at most the given amount of workers at the same time. A plan keeps its own
+ * operator buffers and window contents, so the plans also share a memory budget: a plan only starts if its estimated
+ * memory fits in the part of the budget the running plans leave. The plans start in the order they are added. Every
+ * plan writes its own result file, so the result files are the same as the files of a sequential sweep (apart from
+ * the execution time in their last line). A failed plan is run again up to the given amount of retries, the failed
+ * plans are listed in the summary at the end.
+ *
+ * @version 1.0
+ */
+public class ExperimentSweep {
+	/** Approximate memory of a tuple with its tokens in bytes. */
+	private static final int TUPLE_MEMORY = 512;
+
+	/**
+	 * Plan of the sweep, e.g. ed -> ed.runTopN("topn", 10, 300000).
+	 */
+	public interface Plan {
+		void run(EventDetectionModules ed) throws Exception;
+	}
+
+	private static class Job {
+		private final String name;
+		private final int memory; // in MB
+		private final Plan plan;
+		private int attempts = 0;
+		private long time = 0;
+		private Exception error;
+
+		private Job(String name, int memory, Plan plan) {
+			this.name = name;
+			this.memory = memory;
+			this.plan = plan;
+		}
+	}
+
+	private final EventDetectionModules ed;
+	private final int workers;
+	private final int memoryBudget; // in MB
+	private final int retries;
+	private final List<Job> jobs = new ArrayList<>();
+	private Semaphore memory;
+	private final AtomicInteger finished = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+
+	/**
+	 * @param ed event detection the plans run on
+	 * @param workers maximum amount of plans running at the same time
+	 * @param memoryBudget memory of all running plans in MB
+	 * @param retries amount of times a failed plan is run again
+	 */
+	public ExperimentSweep(final EventDetectionModules ed, final int workers, final int memoryBudget, final int retries) {
+		this.ed = ed;
+		this.workers = Math.max(1, workers);
+		this.memoryBudget = Math.max(1, memoryBudget);
+		this.retries = retries;
+	}
+
+	/**
+	 * Estimated memory of a plan in MB: every stream between two operators buffers up to outStreamSize tuples (see
+	 * niagarino.properties), a window keeps the tuples of windowMinutes minutes.
+	 * @param streams amount of streams between the operators of the plan
+	 * @param windowMinutes minutes of the stream the windows of the plan keep
+	 * @param minuteTuples tuples per minute of the stream
+	 * @return memory in MB
+	 */
+	public static int estimateMemory(final int streams, final double windowMinutes, final long minuteTuples) {
+		final long bufferTuples = Long.parseLong(PropertiesReader.getPropertiesReader().getProperties()
+				.getProperty("outStreamSize").trim());
+		final long tuples = streams * bufferTuples + (long)(windowMinutes * minuteTuples);
+		return (int)Math.max(1, tuples * TUPLE_MEMORY >> 20);
+	}
+
+	/**
+	 * Adds a plan, it is run by run().
+	 * @param name name of the plan in the progress and the summary
+	 * @param memory estimated memory of the plan in MB, a plan exceeding the budget runs alone
+	 * @param plan plan
+	 */
+	public void add(final String name, final int memory, final Plan plan) {
+		this.jobs.add(new Job(name, Math.min(Math.max(1, memory), this.memoryBudget), plan));
+	}
+
+	/**
+	 * Runs all added plans and waits until they are finished.
+	 * @return amount of failed plans
+	 */
+	public int run() {
+		// fair, so a plan with a large estimate is not passed by the following plans
+		this.memory = new Semaphore(this.memoryBudget, true);
+		final long start = System.nanoTime();
+		System.out.println("sweep of " + this.jobs.size() + " plans on " + this.workers + " workers with " + this.memoryBudget
+				+ " MB");
+		final ExecutorService pool = Executors.newFixedThreadPool(this.workers);
+		for (final Job job : this.jobs) {
+			pool.execute(() -> this.runJob(job));
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				// wait for all plans
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		return this.printSummary((System.nanoTime() - start) / 1e9);
+	}
+
+	private void runJob(final Job job) {
+		try {
+			this.memory.acquire(job.memory);
+		} catch (InterruptedException e) {
+			job.error = e;
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
+			this.running.incrementAndGet();
+			while (job.attempts <= this.retries) {
+				job.attempts++;
+				final long start = System.nanoTime();
+				try {
+					job.plan.run(this.ed);
+					job.error = null;
+				} catch (Exception e) {
+					job.error = e;
+					System.out.println(job.name + ": attempt " + job.attempts + " failed: " + e);
+				}
+				job.time += System.nanoTime() - start;
+				if (job.error == null) {
+					break;
+				}
+			}
+		} finally {
+			this.running.decrementAndGet();
+			this.memory.release(job.memory);
+		}
+		System.out.println(String.format(Locale.ROOT, "[%d/%d] %s %s in %.1f s (%d running, %d MB free)",
+				this.finished.incrementAndGet(), this.jobs.size(), job.name, job.error == null ? "done" : "failed",
+				job.time / 1e9, this.running.get(), this.memory.availablePermits()));
+	}
+
+	private int printSummary(final double seconds) {
+		double planSeconds = 0;
+		final List<Job> failed = new ArrayList<>();
+		for (final Job job : this.jobs) {
+			planSeconds += job.time / 1e9;
+			if (job.error != null || job.attempts == 0) {
+				failed.add(job);
+			}
+		}
+		System.out.println(String.format(Locale.ROOT, "sweep done: %d plans in %.1f s (%.1f s plan time, %.1f plans running "
+				+ "on average), %d failed", this.jobs.size(), seconds, planSeconds, seconds > 0 ? planSeconds / seconds : 0, failed.size()));
+		for (final Job job : failed) {
+			System.out.println("  " + job.name + " after " + job.attempts + " attempts: " + job.error);
+		}
+		return failed.size();
+	}
+}
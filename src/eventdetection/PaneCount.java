@@ -0,0 +1,99 @@
+/*
+ * @(#)PaneCount.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.pdx.cs.niagarino.operator.AbstractOperator;
+import edu.pdx.cs.niagarino.stream.Attribute;
+import edu.pdx.cs.niagarino.stream.Control;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+
+/**
+ * Operator which counts the tokens of the unnested tuples in panes of a fixed length.
+ *
+ * The panes are aligned like the windows of a ValueWindow, to the creation date of the first tuple. Every window whose
+ * size is a multiple of the pane length consists of whole panes, so the counts of a window are the sum of the counts
+ * of its panes (see PaneTopN). When a pane is complete, a tuple (pane, first creation date, token, count) is passed on
+ * for every token of the pane, in the order the tokens first occur in the pane.
+ *
+ * @version 1.0
+ */
+class PaneCount extends AbstractOperator {
+	/** Schema of the tuples of a pane. */
+	static final Schema PANE_SCHEMA = new Schema(1, new Attribute("pane", Long.class),
+			new Attribute("creationdate", Date.class), new Attribute("token", String.class),
+			new Attribute("count", Long.class));
+
+	private final int tokenAttribute;
+	private final long paneLength;
+	private double offset = -1;
+	private long pane = -1;
+	private long firstTime;
+	private Map<String, long[]> counts = new LinkedHashMap<>();
+
+	/**
+	 * @param schema schema of the unnested tuples
+	 * @param tokenAttribute position of the token
+	 * @param paneLength length of a pane in milliseconds
+	 */
+	PaneCount(final Schema schema, final int tokenAttribute, final long paneLength) {
+		super(PaneCount.class.getSimpleName(), Collections.singletonList(schema), 1, 1);
+		this.tokenAttribute = tokenAttribute;
+		this.paneLength = paneLength;
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return PANE_SCHEMA;
+	}
+
+	@Override
+	protected void processTuple(final int port, final Tuple tuple) {
+		final long time = ((Date)tuple.getProgressingValue()).getTime();
+		if (this.offset < 0) {
+			this.offset = time;
+		}
+		// the same arithmetic as the segments of a ValueWindow
+		final long pane = (long)((time - this.offset) / this.paneLength);
+		if (pane != this.pane) {
+			this.reportPane();
+			this.pane = pane;
+			this.firstTime = time;
+		}
+		this.firstTime = Math.min(this.firstTime, time);
+		final String token = (String)tuple.getAttributeValue(this.tokenAttribute);
+		final long[] count = this.counts.get(token);
+		if (count == null) {
+			this.counts.put(token, new long[] {1});
+		} else {
+			count[0]++;
+		}
+	}
+
+	@Override
+	protected void processForwardControl(final int port, final Control control) {
+		if (Control.Type.EOF.equals(control.getType())) {
+			this.reportPane();
+		}
+		super.processForwardControl(port, control);
+	}
+
+	private void reportPane() {
+		if (this.counts.isEmpty()) {
+			return;
+		}
+		final Long pane = this.pane;
+		final Date firstTime = new Date(this.firstTime);
+		for (final Map.Entry<String, long[]> entry : this.counts.entrySet()) {
+			this.pushTuple(new Tuple(PANE_SCHEMA, Arrays.asList(pane, firstTime, entry.getKey(), entry.getValue()[0])));
+		}
+		this.counts = new LinkedHashMap<>();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * @(#)PaneTopN.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.pdx.cs.niagarino.operator.AbstractOperator;
+import edu.pdx.cs.niagarino.stream.Control;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+import edu.pdx.cs.niagarino.util.TypeSystem;
+
+/**
+ * Operator which reports the topN tokens of tumbling windows from the counts of their panes (see PaneCount).
+ *
+ * The result is the one of a ValueWindow(size, size) followed by an OrderedAggregate counting the tokens in descending
+ * order limited to topN: for every window the first creation date, the token and its count, in the segment of the
+ * window. Ties keep the order of the groups of the aggregate, so the tokens are collected in a HashMap with the hash
+ * of its groups in the order they first occur in the window.
+ *
+ * @version 1.0
+ */
+class PaneTopN extends AbstractOperator {
+	private final Schema outputSchema;
+	private final long panesPerWindow;
+	private final int topN;
+	private long window = -1;
+	private long firstTime;
+	private Map<Group, long[]> counts = new HashMap<>();
+
+	/** Group of the aggregate, a token with the hash of GroupedStreamSegment. */
+	private static final class Group {
+		private final String token;
+
+		private Group(final String token) {
+			this.token = token;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(new Object[] {this.token});
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return object instanceof Group && ((Group)object).token.equals(this.token);
+		}
+	}
+
+	/**
+	 * @param outputSchema schema of the OrderedAggregate this operator replaces
+	 * @param windowSize size of the windows in milliseconds, a multiple of paneLength
+	 * @param paneLength length of the panes in milliseconds
+	 * @param topN amount of tokens reported for every window
+	 */
+	PaneTopN(final Schema outputSchema, final long windowSize, final long paneLength, final int topN) {
+		super(PaneTopN.class.getSimpleName(), Collections.singletonList(PaneCount.PANE_SCHEMA), 1, 1);
+		this.outputSchema = outputSchema;
+		this.panesPerWindow = windowSize / paneLength;
+		this.topN = topN;
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return this.outputSchema;
+	}
+
+	@Override
+	protected void processTuple(final int port, final Tuple tuple) {
+		final long window = (Long)tuple.getAttributeValue(0) / this.panesPerWindow;
+		final long time = ((Date)tuple.getAttributeValue(1)).getTime();
+		if (window != this.window) {
+			this.reportWindow();
+			this.window = window;
+			this.firstTime = time;
+		}
+		this.firstTime = Math.min(this.firstTime, time);
+		final Group group = new Group((String)tuple.getAttributeValue(2));
+		final long[] count = this.counts.get(group);
+		if (count == null) {
+			this.counts.put(group, new long[] {(Long)tuple.getAttributeValue(3)});
+		} else {
+			count[0] += (Long)tuple.getAttributeValue(3);
+		}
+	}
+
+	@Override
+	protected void processForwardControl(final int port, final Control control) {
+		if (Control.Type.EOF.equals(control.getType())) {
+			this.reportWindow();
+		}
+		super.processForwardControl(port, control);
+	}
+
+	private void reportWindow() {
+		if (this.counts.isEmpty()) {
+			return;
+		}
+		final Class<?> countType = this.outputSchema.getAttribute(2).getType();
+		final Date firstTime = new Date(this.firstTime);
+		final List<Object[]> groups = new ArrayList<>(this.counts.size());
+		for (final Map.Entry<Group, long[]> entry : this.counts.entrySet()) {
+			groups.add(new Object[] {entry.getKey().token, entry.getValue()[0]});
+		}
+		// stable, ties keep the order of the map
+		groups.sort((a, b) -> Long.compare((Long)b[1], (Long)a[1]));
+		// like the aggregate, a window with less than topN tokens is not reported
+		final int size = this.topN > 0 && groups.size() >= this.topN ? this.topN : 0;
+		for (int i = 0; i < size; i++) {
+			final Object[] group = groups.get(i);
+			final Tuple tuple = new Tuple(this.outputSchema, Arrays.asList(firstTime, group[0],
+					TypeSystem.convertNumber(countType, (Long)group[1])));
+			tuple.getElementMetadata().addSegmentId(this.window);
+			this.pushTuple(tuple);
+		}
+		this.counts = new HashMap<>();
+	}
+}
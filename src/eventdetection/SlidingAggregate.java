@@ -0,0 +1,417 @@
+/*
+ * @(#)SlidingAggregate.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import edu.pdx.cs.niagarino.operator.AbstractOperator;
+import edu.pdx.cs.niagarino.operator.AggregationFunction;
+import edu.pdx.cs.niagarino.operator.AggregationType;
+import edu.pdx.cs.niagarino.operator.OrderedAggregate;
+import edu.pdx.cs.niagarino.stream.Control;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+import edu.pdx.cs.niagarino.util.TypeSystem;
+import kn.uni.inf.niagarino.operator.OrderingType;
+
+/**
+ * Operator which aggregates the groups of sliding windows incrementally, it replaces a ValueWindow(size, slide)
+ * followed by an OrderedAggregate with a single group attribute, aggregated attribute and function without ordering.
+ *
+ * The windows consist of panes of the slide length. The aggregate of a window is not computed from its tuples,
+ * every group keeps its state from window to window: a tuple is added to the state of its group when it arrives and
+ * the oldest pane is removed after its last window is reported. The segments, creation dates and limitations are the
+ * ones of the window and the aggregate, and the groups of a window are reported in the same order, which is the order
+ * of a HashMap the groups are put into in the order they first occur in the window. The tuples have to arrive in the
+ * order of their progressing values, like the tuples of an aggregate.
+ *
+ * @version 1.0
+ */
+abstract class SlidingAggregate extends AbstractOperator {
+	private final Schema outputSchema;
+	private final int groupAttribute;
+	private final int aggregatedAttribute;
+	private final long size;
+	private final long slide;
+	/** Panes of a window. */
+	protected final int windowPanes;
+	protected final AggregationFunction function;
+
+	// segments of the ValueWindow
+	private double offset = -1;
+	private long segmentId = 0;
+	private long firstSegment = 0;
+	private long lastSegment = -1;
+	private final Set<Long> openSegments = new HashSet<>();
+
+	/** Term ids of the groups. */
+	private final Map<String, Integer> termIds = new HashMap<>();
+	private final List<Group> groups = new ArrayList<>();
+	private int[] marks = new int[0];
+	private int mark = 0;
+	private final TreeMap<Long, Pane> panes = new TreeMap<>();
+
+	/** Group of the aggregate, a token with the hash of GroupedStreamSegment. */
+	private static final class Group {
+		private final String token;
+		private final int hash;
+
+		private Group(final String token) {
+			this.token = token;
+			this.hash = Arrays.hashCode(new Object[] {token});
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return object instanceof Group && ((Group)object).token.equals(this.token);
+		}
+	}
+
+	/** Tuples of a pane in the order they arrived. */
+	protected static final class Pane {
+		private final long index;
+		protected int size = 0;
+		protected int[] terms = new int[256];
+		protected double[] values = new double[256];
+		private Object minimalValue;
+
+		private Pane(final long index) {
+			this.index = index;
+		}
+
+		private void add(final int term, final double value) {
+			if (this.size == this.terms.length) {
+				this.terms = Arrays.copyOf(this.terms, this.size * 2);
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.terms[this.size] = term;
+			this.values[this.size++] = value;
+		}
+	}
+
+	/** Groups of a window, computed when the window is closed. */
+	private static final class Report {
+		private final long segment;
+		private final Object minimalValue;
+		private final int[] terms;
+		private final double[] values;
+
+		private Report(final long segment, final Object minimalValue, final int[] terms, final double[] values) {
+			this.segment = segment;
+			this.minimalValue = minimalValue;
+			this.terms = terms;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * @param schema schema of the tuples
+	 * @param groupAttribute position of the group (a token)
+	 * @param aggregatedAttribute position of the aggregated value (a number)
+	 * @param size size of the windows, a multiple of slide
+	 * @param slide slide of the windows
+	 * @param function aggregation function and its limitation, without ordering
+	 */
+	protected SlidingAggregate(final Schema schema, final int groupAttribute, final int aggregatedAttribute,
+			final long size, final long slide, final AggregationFunction function) {
+		super(SlidingAggregate.class.getSimpleName(), Collections.singletonList(schema), 1, 1);
+		if (slide <= 0 || size % slide != 0) {
+			throw new IllegalArgumentException("Size " + size + " is no multiple of slide " + slide + ".");
+		}
+		if (!OrderingType.NONE.equals(function.getOrderingType())) {
+			throw new IllegalArgumentException("Ordering " + function.getOrderingType() + " is not supported.");
+		}
+		this.outputSchema = new OrderedAggregate(schema, new int[] {groupAttribute}, new int[] {aggregatedAttribute},
+				function).getOutputSchema();
+		this.groupAttribute = groupAttribute;
+		this.aggregatedAttribute = aggregatedAttribute;
+		this.size = size;
+		this.slide = slide;
+		this.windowPanes = (int)(size / slide);
+		this.function = function;
+	}
+
+	/**
+	 * Incremental aggregate of the given function.
+	 * @throws IllegalArgumentException if there is none for the function
+	 */
+	static SlidingAggregate create(final Schema schema, final int groupAttribute, final int aggregatedAttribute,
+			final long size, final long slide, final AggregationFunction function) {
+		if (AggregationType.SHIFT.equals(function.getAggregationType())) {
+			return new SlidingShift(schema, groupAttribute, aggregatedAttribute, size, slide, function);
+		} else if (AggregationType.SUM.equals(function.getAggregationType())) {
+			return new SlidingSum(schema, groupAttribute, aggregatedAttribute, size, slide, function);
+		}
+		throw new IllegalArgumentException("Function " + function.getAggregationType() + " is not supported.");
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return this.outputSchema;
+	}
+
+	@Override
+	protected void processTuple(final int port, final Tuple tuple) {
+		// the segments of the ValueWindow
+		final Object progressingValue = tuple.getProgressingValue();
+		double value = Double.NaN;
+		if (progressingValue instanceof Number) {
+			value = ((Number)progressingValue).doubleValue();
+		} else if (progressingValue instanceof Date) {
+			value = ((Date)progressingValue).getTime();
+		}
+		if (this.offset < 0) {
+			this.offset = value;
+		}
+		value -= this.offset;
+		final long increment = (long)((value - this.size) / this.slide - this.segmentId + 1);
+		if (increment > 0) {
+			this.segmentId += increment;
+		}
+		long first = -1;
+		long last = -1;
+		for (int i = 0; i < this.windowPanes; i++) {
+			final long start = (this.segmentId + i) * this.slide;
+			if (start <= value && value < start + this.size) {
+				first = first < 0 ? this.segmentId + i : first;
+				last = this.segmentId + i;
+			}
+		}
+		// the aggregate reports the segments the tuple is not in
+		if (first != this.firstSegment || last != this.lastSegment) {
+			final Set<Long> segments = new HashSet<>();
+			for (long segment = first; first >= 0 && segment <= last; segment++) {
+				segments.add(segment);
+			}
+			final Set<Long> closed = new HashSet<>(this.openSegments);
+			closed.removeAll(segments);
+			this.report(closed);
+			this.openSegments.removeAll(closed);
+			this.openSegments.addAll(segments);
+			this.firstSegment = first;
+			this.lastSegment = last;
+		}
+		if (first < 0) {
+			return;
+		}
+
+		final Object group = tuple.getAttributeValue(this.groupAttribute);
+		final Object aggregated = tuple.getAttributeValue(this.aggregatedAttribute);
+		if (group == null || aggregated == null) {
+			return;
+		}
+		Integer term = this.termIds.get(group);
+		if (term == null) {
+			term = this.groups.size();
+			this.termIds.put((String)group, term);
+			this.groups.add(new Group((String)group));
+			if (term == this.marks.length) {
+				this.marks = Arrays.copyOf(this.marks, Math.max(1024, term * 2));
+				this.resize(this.marks.length);
+			}
+		}
+		Pane pane = this.panes.get(last);
+		if (pane == null) {
+			pane = new Pane(last);
+			this.panes.put(last, pane);
+		}
+		final double number = ((Number)aggregated).doubleValue();
+		pane.add(term, number);
+		if (progressingValue instanceof Comparable && (pane.minimalValue == null
+				|| isLess(progressingValue, pane.minimalValue))) {
+			pane.minimalValue = progressingValue;
+		}
+		this.add(term, number, last);
+	}
+
+	@Override
+	protected void processForwardControl(final int port, final Control control) {
+		if (Control.Type.EOF.equals(control.getType())) {
+			// the remaining segments in ascending order
+			final List<Long> segments = new ArrayList<>(this.openSegments);
+			Collections.sort(segments);
+			this.report(segments);
+			this.openSegments.clear();
+		}
+		super.processForwardControl(port, control);
+	}
+
+	/**
+	 * Reports the given segments in the order of the collection, their groups are computed in ascending order.
+	 */
+	private void report(final Iterable<Long> segments) {
+		final List<Long> ascending = new ArrayList<>();
+		for (final Long segment : segments) {
+			ascending.add(segment);
+		}
+		if (ascending.isEmpty()) {
+			return;
+		}
+		Collections.sort(ascending);
+		final Map<Long, Report> reports = new HashMap<>();
+		for (final Long segment : ascending) {
+			final Map<Long, Pane> window = this.panes.subMap(segment, true, segment + this.windowPanes - 1, true);
+			Object minimalValue = null;
+			for (final Pane pane : window.values()) {
+				if (minimalValue == null || isLess(pane.minimalValue, minimalValue)) {
+					minimalValue = pane.minimalValue;
+				}
+			}
+			final int[] terms = this.reportedTerms(segment, window.values());
+			final double[] values = new double[terms.length];
+			for (int i = 0; i < terms.length; i++) {
+				values[i] = this.value(terms[i], segment);
+			}
+			reports.put(segment, new Report(segment, minimalValue, terms, values));
+			// the pane of the segment is in no later window
+			final Map<Long, Pane> expired = this.panes.headMap(segment, true);
+			for (final Pane pane : expired.values()) {
+				this.remove(pane);
+			}
+			expired.clear();
+		}
+		for (final Long segment : segments) {
+			this.push(reports.get(segment));
+		}
+	}
+
+	/**
+	 * Creates the tuples of a window and limits them like the aggregate.
+	 */
+	private void push(final Report report) {
+		final Class<?> type = this.outputSchema.getAttribute(2).getType();
+		final List<Tuple> tuples = new ArrayList<>(report.terms.length);
+		for (int i = 0; i < report.terms.length; i++) {
+			final Number value = TypeSystem.convertNumber(type, report.values[i]);
+			if (value != null) {
+				tuples.add(new Tuple(this.outputSchema, Arrays.asList(report.minimalValue,
+						this.groups.get(report.terms[i]).token, value)));
+				this.function.updateLimit(value.doubleValue());
+			}
+		}
+		for (final Tuple tuple : this.limit(tuples)) {
+			tuple.getElementMetadata().addSegmentId(report.segment);
+			this.pushTuple(tuple);
+		}
+	}
+
+	private List<Tuple> limit(final List<Tuple> tuples) {
+		final List<Tuple> limited = new ArrayList<>();
+		switch (this.function.getLimitationType()) {
+		case TUPLECOUNT:
+			if (this.function.getLimit() > 0 && tuples.size() >= this.function.getLimit()) {
+				limited.addAll(tuples.subList(0, (int)this.function.getLimit()));
+			}
+			return limited;
+		case LTVALUE:
+		case LTWINDOWAVERAGE:
+			for (final Tuple tuple : tuples) {
+				if (((Number)tuple.getAttributeValue(2)).doubleValue() <= this.function.getLimit()) {
+					limited.add(tuple);
+				}
+			}
+			return limited;
+		case GTVALUE:
+		case GTWINDOWAVERAGE:
+			for (final Tuple tuple : tuples) {
+				if (((Number)tuple.getAttributeValue(2)).doubleValue() >= this.function.getLimit()) {
+					limited.add(tuple);
+				}
+			}
+			return limited;
+		default:
+			return tuples;
+		}
+	}
+
+	/**
+	 * Terms of the window in the order the aggregate reports them. By default all groups of the window, see
+	 * hashOrder(int[]).
+	 * @param segment segment of the window
+	 * @param window panes of the window
+	 */
+	protected int[] reportedTerms(final long segment, final Iterable<Pane> window) {
+		return this.hashOrder(this.windowTerms(window));
+	}
+
+	/**
+	 * The terms of the window in the order they first occur.
+	 */
+	protected int[] windowTerms(final Iterable<Pane> window) {
+		this.mark++;
+		int[] terms = new int[256];
+		int size = 0;
+		for (final Pane pane : window) {
+			for (int i = 0; i < pane.size; i++) {
+				final int term = pane.terms[i];
+				if (this.marks[term] != this.mark) {
+					this.marks[term] = this.mark;
+					if (size == terms.length) {
+						terms = Arrays.copyOf(terms, size * 2);
+					}
+					terms[size++] = term;
+				}
+			}
+		}
+		return Arrays.copyOf(terms, size);
+	}
+
+	/**
+	 * The terms in the order of a HashMap of their groups, the terms are put into it in the given order.
+	 */
+	protected int[] hashOrder(final int[] terms) {
+		final Map<Group, Integer> map = new HashMap<>();
+		for (final int term : terms) {
+			map.put(this.groups.get(term), term);
+		}
+		final int[] ordered = new int[terms.length];
+		int i = 0;
+		for (final Integer term : map.values()) {
+			ordered[i++] = term;
+		}
+		return ordered;
+	}
+
+	/**
+	 * Whether the first progressing value is less than the second, both of the same comparable type.
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean isLess(final Object value, final Object other) {
+		return ((Comparable<Object>)value).compareTo(other) < 0;
+	}
+
+	/**
+	 * Grows the state of the terms to the given amount of terms.
+	 */
+	protected abstract void resize(int terms);
+
+	/**
+	 * Adds a value of a term, which arrived in the given pane.
+	 */
+	protected abstract void add(int term, double value, long pane);
+
+	/**
+	 * Removes the values of a pane which is in no open window anymore.
+	 */
+	protected abstract void remove(Pane pane);
+
+	/**
+	 * Aggregated value of a term in the window of the given segment, the values of the earlier panes are removed.
+	 */
+	protected abstract double value(int term, long segment);
+}
@@ -0,0 +1,62 @@
+/*
+ * @(#)SlidingShift.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.Arrays;
+
+import edu.pdx.cs.niagarino.operator.AggregationFunction;
+import edu.pdx.cs.niagarino.stream.Schema;
+
+/**
+ * Incremental sliding window aggregate of AggregationType.SHIFT (see SlidingAggregate).
+ *
+ * The shift of a group in a window only depends on its last two values in the window: 0 for a single value,
+ * otherwise 100 - 100 / previous * last. Every term keeps its last two values with their panes, a window uses the
+ * values of its panes.
+ *
+ * @version 1.0
+ */
+class SlidingShift extends SlidingAggregate {
+	private long[] lastPanes = new long[0];
+	private double[] lastValues = new double[0];
+	private long[] previousPanes = new long[0];
+	private double[] previousValues = new double[0];
+
+	SlidingShift(final Schema schema, final int groupAttribute, final int aggregatedAttribute, final long size,
+			final long slide, final AggregationFunction function) {
+		super(schema, groupAttribute, aggregatedAttribute, size, slide, function);
+	}
+
+	@Override
+	protected void resize(final int terms) {
+		final int length = this.lastPanes.length;
+		this.lastPanes = Arrays.copyOf(this.lastPanes, terms);
+		this.lastValues = Arrays.copyOf(this.lastValues, terms);
+		this.previousPanes = Arrays.copyOf(this.previousPanes, terms);
+		this.previousValues = Arrays.copyOf(this.previousValues, terms);
+		Arrays.fill(this.lastPanes, length, terms, -1);
+		Arrays.fill(this.previousPanes, length, terms, -1);
+	}
+
+	@Override
+	protected void add(final int term, final double value, final long pane) {
+		this.previousPanes[term] = this.lastPanes[term];
+		this.previousValues[term] = this.lastValues[term];
+		this.lastPanes[term] = pane;
+		this.lastValues[term] = value;
+	}
+
+	@Override
+	protected void remove(final Pane pane) {
+		// the panes of the values are compared with the window
+	}
+
+	@Override
+	protected double value(final int term, final long segment) {
+		if (this.previousPanes[term] < segment) {
+			return 0;
+		}
+		return 100 - 100 / this.previousValues[term] * this.lastValues[term];
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * @(#)SlidingSum.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.Arrays;
+
+import edu.pdx.cs.niagarino.operator.AggregationFunction;
+import edu.pdx.cs.niagarino.stream.Schema;
+import kn.uni.inf.niagarino.operator.LimitationType;
+
+/**
+ * Incremental sliding window aggregate of AggregationType.SUM (see SlidingAggregate).
+ *
+ * Every term keeps the amount of its values in the open panes: the values of the newest pane are counted when they
+ * arrive and the values of the oldest pane are subtracted when it is removed. The sums of the reported groups are
+ * computed from the panes of the window when it is reported, in the order of the tuples and like the aggregate adds
+ * them, so they are the same as the sums of the aggregate. With a parameter, the sum is 0 unless the group has
+ * exactly that amount of values in the window.
+ *
+ * Only a group with a value in every pane of a window can exceed a positive GTVALUE limit if the parameter is the
+ * amount of panes (e.g. Shifty), so only these groups are summed. They keep the order of the HashMap of all groups
+ * of the window.
+ *
+ * @version 1.0
+ */
+class SlidingSum extends SlidingAggregate {
+	private int[] counts = new int[0];
+	// sums of the reported groups of the window
+	private double[] sums = new double[0];
+	private int[] windowCounts = new int[0];
+	private int[] marks = new int[0];
+	private int mark = 0;
+
+	SlidingSum(final Schema schema, final int groupAttribute, final int aggregatedAttribute, final long size,
+			final long slide, final AggregationFunction function) {
+		super(schema, groupAttribute, aggregatedAttribute, size, slide, function);
+	}
+
+	@Override
+	protected void resize(final int terms) {
+		this.counts = Arrays.copyOf(this.counts, terms);
+		this.sums = Arrays.copyOf(this.sums, terms);
+		this.windowCounts = Arrays.copyOf(this.windowCounts, terms);
+		this.marks = Arrays.copyOf(this.marks, terms);
+	}
+
+	@Override
+	protected void add(final int term, final double value, final long pane) {
+		this.counts[term]++;
+	}
+
+	@Override
+	protected void remove(final Pane pane) {
+		for (int i = 0; i < pane.size; i++) {
+			this.counts[pane.terms[i]]--;
+		}
+	}
+
+	@Override
+	protected double value(final int term, final long segment) {
+		final int parameter = this.function.getParameter();
+		if (parameter != 0 && this.windowCounts[term] != parameter) {
+			return 0;
+		}
+		return this.sums[term];
+	}
+
+	@Override
+	protected int[] reportedTerms(final long segment, final Iterable<Pane> window) {
+		int[] terms = super.reportedTerms(segment, window);
+		if (this.function.getParameter() == this.windowPanes && LimitationType.GTVALUE.equals(
+				this.function.getLimitationType()) && this.function.getLimit() > 0) {
+			// the open panes can reach beyond the window, the values in the window are counted by sum
+			int size = 0;
+			for (final int term : terms) {
+				if (this.counts[term] >= this.windowPanes) {
+					terms[size++] = term;
+				}
+			}
+			terms = Arrays.copyOf(terms, size);
+		}
+		this.sum(terms, window);
+		return terms;
+	}
+
+	/**
+	 * Sums and counts the values of the terms in the window. The values are added in the order of their tuples, a
+	 * NaN sum is replaced by the next value like in the aggregate.
+	 */
+	private void sum(final int[] terms, final Iterable<Pane> window) {
+		this.mark++;
+		for (final int term : terms) {
+			this.marks[term] = this.mark;
+			this.sums[term] = Double.NaN;
+			this.windowCounts[term] = 0;
+		}
+		for (final Pane pane : window) {
+			for (int i = 0; i < pane.size; i++) {
+				final int term = pane.terms[i];
+				if (this.marks[term] == this.mark) {
+					final double sum = this.sums[term];
+					this.sums[term] = Double.isNaN(sum) ? pane.values[i] : sum + pane.values[i];
+					this.windowCounts[term]++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * @(#)ThresholdSink.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.pdx.cs.niagarino.operator.AbstractOperator;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+
+/**
+ * Sink which applies several thresholds to the scores of the tokens at once, e.g. the summed shifts of Shifty.
+ *
+ * For every threshold it does what a plan of its own would do after the score: the tokens with a score of at least the
+ * threshold are kept (like the GTVALUE limitation), a token is reported only once per reset interval of segments
+ * (like Distinct) and the segment, creation date and token are printed to the output of the threshold (like a Projection
+ * of the creation date and the token followed by Print). The scores have to be limited to the lowest threshold at
+ * most.
+ *
+ * @version 1.0
+ */
+class ThresholdSink extends AbstractOperator {
+	private final int tokenAttribute;
+	private final int scoreAttribute;
+	private final int[] thresholds;
+	private final PrintStream[] outputs;
+	private final int resetSegments;
+
+	// state of Distinct for every threshold
+	private final List<Set<String>> seen = new ArrayList<>();
+	private final long[] lastClearedIds;
+	private final long[] resetSegmentIds;
+
+	/**
+	 * @param schema schema of the tuples, the creation date comes first
+	 * @param tokenAttribute position of the token
+	 * @param scoreAttribute position of the score
+	 * @param thresholds thresholds
+	 * @param outputs output of every threshold
+	 * @param resetSegments segments until the tokens can be reported again, see Distinct
+	 */
+	ThresholdSink(final Schema schema, final int tokenAttribute, final int scoreAttribute, final int[] thresholds,
+			final PrintStream[] outputs, final int resetSegments) {
+		super(ThresholdSink.class.getSimpleName(), Collections.singletonList(schema), 1, 1);
+		this.tokenAttribute = tokenAttribute;
+		this.scoreAttribute = scoreAttribute;
+		this.thresholds = thresholds;
+		this.outputs = outputs;
+		this.resetSegments = resetSegments;
+		this.lastClearedIds = new long[thresholds.length];
+		this.resetSegmentIds = new long[thresholds.length];
+		for (int i = 0; i < thresholds.length; i++) {
+			this.seen.add(new HashSet<>());
+			this.lastClearedIds[i] = -1;
+			this.resetSegmentIds[i] = resetSegments;
+		}
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return this.getInputSchemas().get(0);
+	}
+
+	@Override
+	protected void processTuple(final int port, final Tuple tuple) {
+		final double score = ((Number)tuple.getAttributeValue(this.scoreAttribute)).doubleValue();
+		final List<Long> tupleSegmentIds = tuple.getElementMetadata().getSegmentIds();
+		final String token = String.valueOf(tuple.getAttributeValue(this.tokenAttribute));
+		for (int i = 0; i < this.thresholds.length; i++) {
+			if (score < this.thresholds[i]) {
+				continue;
+			}
+			// Distinct
+			final long segmentId = tupleSegmentIds.get(0);
+			if (segmentId != this.lastClearedIds[i] && segmentId >= this.resetSegmentIds[i]) {
+				this.seen.get(i).clear();
+				this.lastClearedIds[i] = segmentId;
+				this.resetSegmentIds[i] += this.resetSegments;
+			}
+			if (!this.seen.get(i).add(token)) {
+				continue;
+			}
+			// Print
+			this.outputs[i].print((segmentId < 10 ? "0" + segmentId : String.valueOf(segmentId)) + "\t"
+					+ tuple.getAttributeValue(0) + "\t" + token + System.lineSeparator());
+		}
+	}
+}
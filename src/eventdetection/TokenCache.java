@@ -0,0 +1,289 @@
+/*
+ * @(#)TokenCache.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import edu.pdx.cs.niagarino.util.TypeSystem;
+
+/**
+ * Cache of the tokens of a stream file, so the text of a stream is split and cleaned only once.
+ *
+ * The cache of a stream file is named after the SHA-256 hash of its content and lies next to it
+ * (HASH.tokens), a changed stream file gets a new cache. It contains the tweets the Scan of the stream file creates
+ * (the header and the comments are skipped like there) with the tokens the derivation creates from their content. A
+ * file starts with the magic, the version and the position of the dictionary of the tokens. The tweets follow as
+ * varints: tweet id (zigzag + 1, 0 if it is null), difference of the creation date to the previous one in
+ * milliseconds (zigzag), amount of tokens and the token ids. The dictionary (amount of tokens, length and UTF-8 bytes
+ * of every token) is written at the end, when all tokens are known. The hash only covers the stream file, the
+ * tokens are always cleaned by the function of the derivation (TokensDerivationFunction.getCleanTerm).
+ *
+ * @version 1.0
+ */
+public class TokenCache {
+	private static final int MAGIC = 0x544F4B31; // TOK1
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 16;
+
+	/** Stream files the cache was checked for in this JVM, with their length and modification time. */
+	private static final Map<String, Object[]> checked = new HashMap<>();
+
+	/**
+	 * Cache of the stream file, it is created if it does not exist yet. The plans of a sweep running at the same time
+	 * wait for the first one, which creates the cache.
+	 * @param streamFile text stream file (tweet id, creation date and content separated by tabs)
+	 * @param cleanTerm function applied to every token, the same the derivation of the tokens uses
+	 * @return file name of the cache
+	 * @throws IOException
+	 */
+	public static synchronized String get(final String streamFile, final Function<String, String> cleanTerm)
+			throws IOException {
+		final File file = new File(streamFile);
+		final Object[] check = checked.get(streamFile);
+		if (check != null && (Long)check[0] == file.length() && (Long)check[1] == file.lastModified()) {
+			return (String)check[2];
+		}
+		final File parent = file.getAbsoluteFile().getParentFile();
+		final File cache = new File(parent, hash(file) + ".tokens");
+		if (!cache.exists()) {
+			final long start = System.currentTimeMillis();
+			final File temp = File.createTempFile("tokens", ".tmp", parent);
+			try {
+				write(file, temp, cleanTerm);
+				Files.move(temp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				temp.delete();
+			}
+			System.out.println("created token cache " + cache + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		checked.put(streamFile, new Object[] {file.length(), file.lastModified(), cache.getPath()});
+		return cache.getPath();
+	}
+
+	/**
+	 * SHA-256 hash of the content of a file, as hex string.
+	 */
+	private static String hash(final File file) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		try (InputStream input = new DigestInputStream(new FileInputStream(file), digest)) {
+			final byte[] buffer = new byte[1 << 16];
+			while (input.read(buffer) != -1) {
+				// the digest is updated by the stream
+			}
+		}
+		final StringBuilder hex = new StringBuilder();
+		for (final byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Splits and cleans the tweets of the stream file into the cache.
+	 */
+	private static void write(final File streamFile, final File cacheFile, final Function<String, String> cleanTerm)
+			throws IOException {
+		final Map<String, Integer> termIds = new HashMap<>();
+		final List<String> dictionary = new ArrayList<>();
+		long dictionaryLength = 4;
+		// the default charset, like the Scan of the stream file
+		try (BufferedReader reader = new BufferedReader(new FileReader(streamFile));
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile), 1 << 16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(0);
+			long lastTime = 0;
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				// the same values the Scan creates, lines without a creation date are skipped
+				final String[] values = line.split("\t");
+				final Date date = values.length > 1 ? (Date)TypeSystem.convertValue(Date.class, values[1]) : null;
+				if (date == null) {
+					continue;
+				}
+				final Long tweetId = (Long)TypeSystem.convertValue(Long.class, values[0]);
+				final String content = values.length > 2 ? (String)TypeSystem.convertValue(String.class, values[2]) : null;
+				final String[] tokens = TwistorBinaryScan.tokenize(content, cleanTerm);
+
+				writeVarLong(output, tweetId == null ? 0 : zigzag(tweetId) + 1);
+				writeVarLong(output, zigzag(date.getTime() - lastTime));
+				lastTime = date.getTime();
+				writeVarLong(output, tokens.length);
+				for (final String token : tokens) {
+					Integer termId = termIds.get(token);
+					if (termId == null) {
+						termId = dictionary.size();
+						termIds.put(token, termId);
+						dictionary.add(token);
+					}
+					writeVarLong(output, termId);
+				}
+			}
+
+			output.writeInt(dictionary.size());
+			for (final String token : dictionary) {
+				final byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+				dictionaryLength += 4 + bytes.length;
+			}
+		}
+		try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+			file.seek(8);
+			file.writeLong(file.length() - dictionaryLength);
+		}
+	}
+
+	private static long zigzag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void writeVarLong(final DataOutputStream output, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.write((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.write((int)value);
+	}
+
+	/**
+	 * Reads the tweets of a cache one after the other.
+	 */
+	public static class Reader implements Closeable {
+		private final DataInputStream input;
+		private final String[] dictionary;
+		private long remaining;
+
+		private Long tweetId;
+		private long timestamp = 0;
+		private int[] termIds = new int[64];
+		private int termCount;
+
+		public Reader(final String fileName) throws IOException {
+			try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+				if (file.readInt() != MAGIC) {
+					throw new IOException(fileName + " is no token cache");
+				}
+				final int version = file.readInt();
+				if (version != VERSION) {
+					throw new IOException(fileName + " has version " + version + ", expected " + VERSION);
+				}
+				final long dictionaryPosition = file.readLong();
+				this.remaining = dictionaryPosition - HEADER_LENGTH;
+				file.seek(dictionaryPosition);
+				this.dictionary = new String[file.readInt()];
+				for (int i = 0; i < this.dictionary.length; i++) {
+					final byte[] bytes = new byte[file.readInt()];
+					file.readFully(bytes);
+					this.dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+				}
+			}
+			this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+			this.input.skipBytes(HEADER_LENGTH);
+		}
+
+		public String[] getDictionary() {
+			return this.dictionary;
+		}
+
+		/**
+		 * Moves to the next tweet.
+		 * @return false at the end of the tweets
+		 * @throws IOException
+		 */
+		public boolean next() throws IOException {
+			if (this.remaining <= 0) {
+				return false;
+			}
+			final long id = this.readVarLong();
+			this.tweetId = id == 0 ? null : unzigzag(id - 1);
+			this.timestamp += unzigzag(this.readVarLong());
+			this.termCount = (int)this.readVarLong();
+			if (this.termCount > this.termIds.length) {
+				this.termIds = new int[Math.max(this.termCount, this.termIds.length * 2)];
+			}
+			for (int i = 0; i < this.termCount; i++) {
+				this.termIds[i] = (int)this.readVarLong();
+			}
+			return true;
+		}
+
+		/**
+		 * @return tweet id, null if the stream file has none
+		 */
+		public Long getTweetId() {
+			return this.tweetId;
+		}
+
+		/**
+		 * Creation date in milliseconds.
+		 */
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		public int getTermCount() {
+			return this.termCount;
+		}
+
+		public int getTermId(final int i) {
+			return this.termIds[i];
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.input.close();
+		}
+
+		private long readVarLong() throws IOException {
+			long value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = this.input.read();
+				if (b == -1) {
+					throw new EOFException();
+				}
+				this.remaining--;
+				value |= (long)(b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		private static long unzigzag(final long value) {
+			return (value >>> 1) ^ -(value & 1);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * @(#)TokenCacheScan.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+
+/**
+ * Source operator which replays the token cache of a text stream file (see TokenCache) in place of its Scan and the
+ * derivation of the tokens.
+ *
+ * The tuples are the ones of the Scan and the derivation (tweet id, creation date, content, tokens), without splitting
+ * or cleaning any text. The content is not cached and always null, like in TwistorBinaryScan.
+ *
+ * @version 1.0
+ */
+public class TokenCacheScan extends TupleSource {
+	private final String fileName;
+
+	/**
+	 * @param name name of the operator
+	 * @param schema schema of the tuples, tweet id (Long), creation date (Date), content (String) and tokens (ArrayList)
+	 * @param fileName token cache, see TokenCache.get
+	 */
+	public TokenCacheScan(final String name, final Schema schema, final String fileName) {
+		super(name, schema);
+		this.fileName = fileName;
+	}
+
+	@Override
+	protected void produce() throws IOException {
+		try (TokenCache.Reader reader = new TokenCache.Reader(this.fileName)) {
+			final String[] dictionary = reader.getDictionary();
+			while (reader.next()) {
+				final int termCount = reader.getTermCount();
+				final ArrayList<String> tokens = new ArrayList<>(termCount);
+				for (int i = 0; i < termCount; i++) {
+					tokens.add(dictionary[reader.getTermId(i)]);
+				}
+				this.push(new Tuple(this.getOutputSchema(), Arrays.asList(reader.getTweetId(),
+						new Date(reader.getTimestamp()), null, tokens)));
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * @(#)TupleCopy.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.Collections;
+
+import edu.pdx.cs.niagarino.operator.AbstractOperator;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+
+/**
+ * Operator which passes on a copy of every tuple.
+ *
+ * A Multiplex passes the same tuple to all of its outputs, but the windows add their segments to the metadata of the
+ * tuple. Each output of a multi-query gets its own copies, so the windows of the approaches do not see each other's
+ * segments.
+ *
+ * @version 1.0
+ */
+class TupleCopy extends AbstractOperator {
+
+	/**
+	 * @param schema schema of the tuples
+	 */
+	TupleCopy(final Schema schema) {
+		super(TupleCopy.class.getSimpleName(), Collections.singletonList(schema), 1, 1);
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return this.getInputSchemas().get(0);
+	}
+
+	@Override
+	protected void processTuple(final int port, final Tuple tuple) {
+		try {
+			this.pushTuple(tuple.clone());
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * @(#)TupleSource.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.io.IOException;
+
+import edu.pdx.cs.niagarino.PhysicalQueryPlan;
+import edu.pdx.cs.niagarino.operator.Operator;
+import edu.pdx.cs.niagarino.stream.Control;
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Stream;
+import edu.pdx.cs.niagarino.stream.Tuple;
+
+import kn.uni.inf.niagarino.paging.Page;
+import kn.uni.inf.niagarino.paging.PagePool;
+import kn.uni.inf.niagarino.stats.OperatorStatistics;
+
+/**
+ * Source operator whose tuples are created by a subclass instead of being scanned from a text file.
+ *
+ * The operator runs on its own thread: produce() pushes the tuples (in pages if the plan is paging), then the last
+ * page and the EOF are pushed and the source waits for the end of the query like the Scan.
+ *
+ * @version 1.0
+ */
+public abstract class TupleSource implements Operator {
+	private final Schema schema;
+	private Stream stream;
+	private boolean isRunning;
+	private final OperatorStatistics statistics;
+	private PhysicalQueryPlan plan;
+	private Page page;
+
+	/**
+	 * @param name name of the operator
+	 * @param schema schema of the tuples
+	 */
+	protected TupleSource(final String name, final Schema schema) {
+		this.schema = schema;
+		this.statistics = new OperatorStatistics(name);
+	}
+
+	/**
+	 * Pushes all tuples of the source, see push.
+	 */
+	protected abstract void produce() throws IOException, InterruptedException;
+
+	/**
+	 * Pushes a tuple to the output stream.
+	 */
+	protected void push(final Tuple tuple) {
+		if (this.plan.isPaging()) {
+			if (this.page == null) {
+				this.page = PagePool.getPagePool().getPage();
+			}
+			this.page.put(tuple);
+			if (this.page.isFull()) {
+				this.stream.pushElement(Stream.Flow.FORWARD, this.page);
+				this.page = PagePool.getPagePool().getPage();
+			}
+		} else {
+			this.stream.pushElement(Stream.Flow.FORWARD, tuple);
+		}
+		this.plan.increaseTuples();
+		this.statistics.incrementTupleCounter();
+	}
+
+	@Override
+	public Schema getOutputSchema() {
+		return this.schema;
+	}
+
+	@Override
+	public void addOutputStream(final Stream stream) {
+		if (this.stream == null) {
+			this.stream = stream;
+		} else {
+			throw new IllegalStateException("Maximum number of output streams exceeded.");
+		}
+	}
+
+	@Override
+	public void addInputStream(final Stream stream) {
+		throw new UnsupportedOperationException("A scan operator cannot have an input stream.");
+	}
+
+	@Override
+	public int getOutputArity() {
+		return 1;
+	}
+
+	@Override
+	public int getInputArity() {
+		return 0;
+	}
+
+	@Override
+	public Thread start() {
+		this.isRunning = true;
+		final Thread thread = new Thread(this::run);
+		thread.start();
+		return thread;
+	}
+
+	@Override
+	public Thread start(final boolean debug) {
+		return this.start();
+	}
+
+	@Override
+	public void stop() {
+		this.isRunning = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.isRunning;
+	}
+
+	private void run() {
+		try {
+			this.produce();
+		} catch (final IOException | InterruptedException e) {
+			e.printStackTrace();
+		}
+
+		if (this.plan.isPaging() && this.page != null) {
+			this.stream.pushElement(Stream.Flow.FORWARD, this.page);
+		}
+		this.stream.pushElement(Stream.Flow.FORWARD, new Control(Control.Type.EOF));
+		// wait for the end of the query
+		boolean eof = false;
+		while (!eof) {
+			final Object element = this.stream.pullElement(Stream.Flow.BACKWARD);
+			eof = element instanceof Control && Control.Type.EOF.equals(((Control) element).getType());
+		}
+		this.isRunning = false;
+	}
+
+	@Override
+	public void setQueryPlan(final PhysicalQueryPlan plan) {
+		this.plan = plan;
+	}
+
+	@Override
+	public PhysicalQueryPlan getQueryPlan() {
+		return this.plan;
+	}
+
+	@Override
+	public OperatorStatistics getOperatorStatistics() {
+		return this.statistics;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * @(#)TwistorBinaryScan.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+import edu.pdx.cs.niagarino.util.TypeSystem;
+
+import twistor.BinaryTweetFormat;
+
+/**
+ * Source operator for a Twistor stream in the binary format (see twistor.BinaryTweetFormat).
+ *
+ * The tuples are the ones the Scan of the text stream followed by the derivation of the tokens creates (tweet id,
+ * creation date, content, tokens), so the Derive operator is not needed. The terms of the dictionary are cleaned
+ * once, a tweet only copies the tokens of its term ids. The content is not restored and always null.
+ *
+ * @version 1.0
+ */
+public class TwistorBinaryScan extends TupleSource {
+	private final String fileName;
+	private final Function<String, String> cleanTerm;
+
+	/**
+	 * @param name name of the operator
+	 * @param schema schema of the tuples, tweet id (Long), creation date (Date), content (String) and tokens (ArrayList)
+	 * @param fileName binary stream file
+	 * @param cleanTerm function applied to every token, the same the derivation of the tokens uses
+	 */
+	public TwistorBinaryScan(final String name, final Schema schema, final String fileName,
+			final Function<String, String> cleanTerm) {
+		super(name, schema);
+		this.fileName = fileName;
+		this.cleanTerm = cleanTerm;
+	}
+
+	@Override
+	protected void produce() throws IOException {
+		try (BinaryTweetFormat.Reader reader = new BinaryTweetFormat.Reader(this.fileName)) {
+			final String[] dictionary = reader.getDictionary();
+			final String[][] termTokens = new String[dictionary.length][];
+			for (int i = 0; i < dictionary.length; i++) {
+				termTokens[i] = tokenize(dictionary[i], this.cleanTerm);
+			}
+			// the scan reads an empty content or "NA" as null, which is tokenized as "null"
+			final String[] nullTokens = tokenize(null, this.cleanTerm);
+
+			while (reader.next()) {
+				final int termCount = reader.getTermCount();
+				final ArrayList<String> tokens = new ArrayList<>(termCount + 1);
+				if (termCount == 0 || (termCount == 1 && TypeSystem.convertValue(String.class, dictionary[reader.getTermId(0)]) == null)) {
+					tokens.addAll(Arrays.asList(nullTokens));
+				} else {
+					for (int i = 0; i < termCount; i++) {
+						tokens.addAll(Arrays.asList(termTokens[reader.getTermId(i)]));
+					}
+				}
+				this.push(new Tuple(this.getOutputSchema(), Arrays.asList(Long.valueOf(reader.getTweetId()),
+						new Date(reader.getTimestamp()), null, tokens)));
+			}
+		}
+	}
+
+	/**
+	 * Tokens of a content the same way TokensDerivationFunction splits and cleans them.
+	 */
+	static String[] tokenize(final String content, final Function<String, String> cleanTerm) {
+		final List<String> tokens = new ArrayList<>();
+		for (final String token : String.valueOf(content).split("\\s")) {
+			final String clean = cleanTerm.apply(token);
+			if (clean != null) {
+				tokens.add(clean);
+			}
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * @(#)TwistorScan.java   1.0   Oct 18, 2026
+ */
+package eventdetection;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import edu.pdx.cs.niagarino.stream.Schema;
+import edu.pdx.cs.niagarino.stream.Tuple;
+import edu.pdx.cs.niagarino.util.TypeSystem;
+
+import twistor.TweetConsumer;
+
+/**
+ * Source operator which creates the Twistor stream while the query runs, instead of scanning a file written by it.
+ *
+ * The stream is created on its own thread with the current GlobalParameters. The tweets are handed over through a
+ * bounded queue, so the creation waits if the query is slower. The tuples are the same the Scan of the output file
+ * creates (tweet id, creation date, content).
+ *
+ * @version 1.0
+ */
+public class TwistorScan extends TupleSource implements TweetConsumer {
+	private final BlockingQueue<Tuple> queue;
+	/** Marks the end of the stream in the queue. */
+	private final Tuple end;
+	/** Whether the end was put into the queue, only used by the generator thread. */
+	private boolean ended;
+
+	/**
+	 * @param name name of the operator
+	 * @param schema schema of the tuples, tweet id (Long), creation date (Date) and content (String)
+	 * @param capacity amount of tweets which can be created in advance
+	 */
+	public TwistorScan(final String name, final Schema schema, final int capacity) {
+		super(name, schema);
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.end = new Tuple(schema, Arrays.asList(new Object[schema.getSize()]));
+	}
+
+	@Override
+	protected void produce() throws InterruptedException {
+		final Thread generator = new Thread(() -> {
+			try {
+				new twistor.Stream(this);
+			} catch (final RuntimeException e) {
+				e.printStackTrace();
+			} finally {
+				// the query ends even if the stream could not be created
+				this.end();
+			}
+		}, "twistor-generator");
+		generator.setDaemon(true);
+		generator.start();
+
+		Tuple tuple;
+		while ((tuple = this.queue.take()) != this.end) {
+			this.push(tuple);
+		}
+	}
+
+	@Override
+	public void tweet(final long tweetId, final long timestamp, final String content) {
+		// the same conversion as for the values of a scanned file, an empty content is null
+		final Tuple tuple = new Tuple(this.getOutputSchema(), Arrays.asList(Long.valueOf(tweetId), new Date(timestamp),
+				TypeSystem.convertValue(String.class, content)));
+		this.put(tuple);
+	}
+
+	@Override
+	public void end() {
+		if (!this.ended) {
+			this.ended = true;
+			this.put(this.end);
+		}
+	}
+
+	private void put(final Tuple tuple) {
+		try {
+			this.queue.put(tuple);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
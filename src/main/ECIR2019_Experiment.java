@@ -3,62 +3,118 @@
  */
 package main;
 
-import eventdetection.EventDetectorModules;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import eventdetection.EventDetectionModules;
+import eventdetection.EventDetectionModules.Detection;
+import eventdetection.ExperimentSweep;
+import twistor.GlobalParameters;
 
 /**
  * Class for running the complete ECIR 2019 experiment.
  *
+ * The plans run concurrently (see ExperimentSweep), usage: ECIR2019_Experiment [workers [memoryMB [retries [multi]]]],
+ * the defaults are all cores, 3/4 of the maximum heap, 1 retry and multi = true. 1 worker runs the plans one after
+ * another. With multi the plans of an approach share one scan of the stream (see runMultiQuery), as many as fit in
+ * the memory.
+ *
  * @author Andreas Weiler &lt;wele@zhaw.ch&gt;
  * @version 1.0
  */
 public class ECIR2019_Experiment {
+	/** Approximate size of a tweet in the stream file in bytes. */
+	private static final int TWEET_BYTES = 120;
+	/** Approximate amount of tokens of a tweet, the tuples of the unnested plans. */
+	private static final int TWEET_TOKENS = 8;
 
 	public static void main(String[] args) {
+		int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int memory = args.length > 1 ? Integer.parseInt(args[1]) : (int)(Runtime.getRuntime().maxMemory() / 4 * 3 >> 20);
+		int retries = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		boolean multi = args.length > 3 ? Boolean.parseBoolean(args[3]) : true;
 		System.out.println("STARTING 10percent evaluation...");
-		new ECIR2019_Experiment("./data/twistor_stream_10p.csv", "./results/10p");
+		new ECIR2019_Experiment("./data/twistor_stream_10p.csv", "./results/10p", workers, memory, retries, multi);
 	}
 
-	private ECIR2019_Experiment(final String streamFile, final String outputFolder) {
+	private ECIR2019_Experiment(final String streamFile, final String outputFolder, final int workers, final int memory,
+			final int retries, final boolean multi) {
 		try {
-			EventDetectorModules ed = new EventDetectorModules(streamFile, outputFolder);
+			EventDetectionModules ed = new EventDetectionModules(streamFile, outputFolder);
+			ExperimentSweep sweep = new ExperimentSweep(ed, workers, memory, retries);
+			int minutes = GlobalParameters.LIMIT_SIZE == -1 ? 1440 : GlobalParameters.LIMIT_SIZE;
+			long minuteTuples = new File(streamFile).length() / TWEET_BYTES / minutes;
 			String[] types = {"random", "topn", "shifty", "llh"};
 			int[] iws = {300000, 600000, 900000, 1200000};
 			for (String type : types) {
+				List<String> names = new ArrayList<>();
+				List<Integer> memories = new ArrayList<>();
+				List<Detection> detections = new ArrayList<>();
 				switch (type) {
 				case "random":
 					for (int i = 6; i <= 20; i++) {
 						for (int w : iws) {
-							System.out.println("Running random...");
-							ed.runRandomEvents(type, i, w);
+							names.add(type + "_" + i + "_" + w);
+							memories.add(ExperimentSweep.estimateMemory(4, w / 60000.0, minuteTuples));
+							detections.add(ed.randomEvents(type, i, w));
 						}
 					}
 					break;
 				case "topn":
 					for (int i = 6; i <= 20; i++) {
 						for (int w : iws) {
-							System.out.println("Running topN...");
-							ed.runTopN(type, i, w);
+							names.add(type + "_" + i + "_" + w);
+							memories.add(ExperimentSweep.estimateMemory(5, w / 60000.0, minuteTuples * TWEET_TOKENS));
+							detections.add(ed.topN(type, i, w));
 						}
 					}
 					break;
 				case "shifty":
+					// all thresholds in a single pass
+					int[] thresholds = new int[61];
 					for (int i = 10; i <= 70; i++) {
-						System.out.println("Running shifty...");
-						ed.runShifty(type, i);
+						thresholds[i - 10] = i;
 					}
+					names.add(type + "_10.." + type + "_70");
+					memories.add(ExperimentSweep.estimateMemory(11, 1, minuteTuples * TWEET_TOKENS));
+					detections.add(ed.shifty(type, thresholds));
 					break;
 				case "llh":
 					for (int i = 6; i <= 20; i++) {
 						for (int w : iws) {
-							System.out.println("Running LLH...");
-							ed.runLLH(type, i, w);
+							names.add(type + "_" + i + "_" + w);
+							memories.add(ExperimentSweep.estimateMemory(4, w / 60000.0, minuteTuples));
+							detections.add(ed.llh(type, i, w));
 						}
 					}
 					break;
 				}
+				addPlans(sweep, names, memories, detections, multi ? memory : 0);
 			}
+			sweep.run();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Adds the plans of an approach to the sweep, the following plans are combined to multi-queries as long as their
+	 * memory fits in groupMemory (0 adds every plan alone).
+	 */
+	private static void addPlans(ExperimentSweep sweep, List<String> names, List<Integer> memories,
+			List<Detection> detections, int groupMemory) {
+		int start = 0;
+		while (start < detections.size()) {
+			int end = start + 1;
+			int memory = memories.get(start);
+			while (end < detections.size() && memory + memories.get(end) <= groupMemory) {
+				memory += memories.get(end++);
+			}
+			List<Detection> group = new ArrayList<>(detections.subList(start, end));
+			String name = end - start == 1 ? names.get(start) : names.get(start) + ".." + names.get(end - 1);
+			sweep.add(name, memory, e -> e.runMultiQuery(group));
+			start = end;
+		}
+	}
 }
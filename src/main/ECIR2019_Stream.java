@@ -3,8 +3,8 @@
  */
 package main;
 
-import twistor.GlobalParameters;
 import twistor.Stream;
+import twistor.StreamParameters;
 
 /**
  * Class for creating the Twistor data stream with 10 percent scale.
@@ -20,7 +20,8 @@ public class ECIR2019_Stream {
 	}
 
 	private ECIR2019_Stream(final String outputStreamFile, final int scale) {
-		GlobalParameters.SCALE = scale;
-		new Stream(outputStreamFile);
+		StreamParameters parameters = new StreamParameters();
+		parameters.SCALE = scale;
+		new Stream(outputStreamFile, parameters);
 	}
 }
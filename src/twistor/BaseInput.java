@@ -0,0 +1,378 @@
+/*
+ * @(#)BaseInput.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reads the file inputs of the base (see TwistorBase) and sums their counts for the windows of a stream.
+ *
+ * The file inputs a window needs are loaded, the following ones are prefetched in the background as long as they fit
+ * into PREFETCH_MEMORY. The sums of a window are computed once and do not depend on the scale, so one base input can
+ * serve the streams of several scales. The windows have to be requested in ascending order from one thread.
+ *
+ * @version 1.0
+ */
+class BaseInput implements Closeable {
+	private TwistorBase base;
+	private String[] terms;
+	private int maxAmountTerms = 0;
+	private List<FileInput> fileInputs = new ArrayList<>();
+	private List<FileInput> currentFileInputs = null;
+	private ExecutorService prefetcher;
+	private long prefetchMemory;
+	private long residentBytes = 0; // size of the loaded and prefetched file inputs
+	private volatile long fileLoadTime = 0; // in nanoseconds, read by the metrics
+	private volatile long fileWaitTime = 0;
+	private volatile long countTime = 0;
+	private int verbosity;
+	private int[][] termCountsBuffers = new int[0][]; // counts of all terms of every file input of a window
+
+	private class FileInput {
+		private int start;
+		private int end;
+		private TwistorBase.Section section;
+		private IntBuffer termCounts;
+		private IntBuffer amountTermsCounts;
+		private volatile boolean loaded = false;
+		private Future<Long> prefetched; // load time in nanoseconds
+
+		private FileInput(TwistorBase.Section section) {
+			this.start = section.getStart();
+			this.end = section.getEnd();
+			this.section = section;
+		}
+
+		public String toString() {
+			return start + " -> " + end;
+		}
+
+		/**
+		 * Loads the data on the prefetch thread, it is taken over by the next call of loadData.
+		 */
+		private void prefetch() {
+			residentBytes += section.getSize();
+			prefetched = prefetcher.submit(() -> {
+				long loadStart = System.nanoTime();
+				termCounts = section.loadTermCounts();
+				amountTermsCounts = section.loadAmountCounts();
+				return System.nanoTime() - loadStart;
+			});
+		}
+
+		private void loadData() {
+			if (!loaded) {
+				long loadTime = 0;
+				long waitStart = System.nanoTime();
+				try {
+					if (prefetched != null) {
+						loadTime = prefetched.get();
+						prefetched = null;
+					}
+					else if (prefetcher != null) {
+						residentBytes += section.getSize();
+						termCounts = section.loadTermCounts();
+						amountTermsCounts = section.loadAmountCounts();
+						loadTime = System.nanoTime() - waitStart;
+					}
+					else {
+						termCounts = section.mapTermCounts();
+						amountTermsCounts = section.mapAmountCounts();
+						loadTime = System.nanoTime() - waitStart;
+					}
+				} catch (IOException | InterruptedException | ExecutionException e) {
+					System.out.println(e.getMessage());
+				}
+				long waitTime = System.nanoTime() - waitStart;
+				fileLoadTime += loadTime;
+				fileWaitTime += waitTime;
+
+				loaded = true;
+				log("loaded file input: " + start + " -> " + end
+						+ " (load: " + TimeUnit.NANOSECONDS.toMillis(loadTime) + " ms, wait: " + TimeUnit.NANOSECONDS.toMillis(waitTime) + " ms)");
+			}
+		}
+
+		/**
+		 * Sets the term counts of the minutes startIndex..endIndex, indexed by term id.
+		 */
+		private void computeTermDistribution(int[] counts, int startIndex, int endIndex) {
+			int columnLength = section.getColumnLength();
+			for (int term = 0; term < terms.length; term++) {
+				counts[term] = rangeSum(termCounts, term * columnLength, startIndex, endIndex);
+			}
+		}
+
+		/**
+		 * Amount of tweets of the minutes startIndex..endIndex, indexed by amount of terms.
+		 */
+		private int[] computeAmountTermsDistribution(int startIndex, int endIndex) {
+			int[] counts = new int[maxAmountTerms + 1];
+			int[] amountKeys = section.getAmountKeys();
+			int columnLength = section.getColumnLength();
+			for (int row = 0; row < amountKeys.length; row++) {
+				counts[amountKeys[row]] += rangeSum(amountTermsCounts, row * columnLength, startIndex, endIndex);
+			}
+			return counts;
+		}
+
+		private void unloadData() {
+			if (loaded) {
+				// mapped regions are released by the garbage collector
+				termCounts = null;
+				amountTermsCounts = null;
+				loaded = false;
+				if (prefetcher != null) {
+					residentBytes -= section.getSize();
+				}
+				log("unloaded file input: " + start + " -> " + end);
+			}
+		}
+
+		/**
+		 * Sum of the minutes start..end of the prefix sum column beginning at column.
+		 */
+		private int rangeSum(IntBuffer buffer, int column, int start, int end) {
+			return buffer.get(column + end + 1) - buffer.get(column + start);
+		}
+	}
+
+	private BaseInput(TwistorBase base, int prefetchMemory, int verbosity) {
+		this.base = base;
+		this.verbosity = verbosity;
+		this.terms = base.getTerms();
+		for (TwistorBase.Section section : base.getSections()) {
+			fileInputs.add(new FileInput(section));
+			for (int amountTerms : section.getAmountKeys()) {
+				maxAmountTerms = Math.max(maxAmountTerms, amountTerms);
+			}
+		}
+
+		this.prefetchMemory = prefetchMemory * 1024L * 1024L;
+		if (prefetchMemory > 0) {
+			prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "twistor-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Opens the base of the parameters (TWISTOR_BASE, TWISTOR_BASE_BINARY, PREFETCH_MEMORY and VERBOSITY).
+	 */
+	static BaseInput open(StreamParameters parameters) throws IOException {
+		return new BaseInput(TwistorBase.open(parameters.TWISTOR_BASE, parameters.TWISTOR_BASE_BINARY), parameters.PREFETCH_MEMORY,
+				parameters.VERBOSITY);
+	}
+
+	/**
+	 * Time spent loading the file inputs in nanoseconds, including the loads in the background.
+	 */
+	long getFileLoadTime() {
+		return fileLoadTime;
+	}
+
+	/**
+	 * Time spent summing the counts of the windows in nanoseconds.
+	 */
+	long getCountTime() {
+		return countTime;
+	}
+
+	int getResidentFileInputs() {
+		int count = 0;
+		for (FileInput fileInput : fileInputs) {
+			if (fileInput.loaded) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	long getResidentFileInputBytes() {
+		long bytes = 0;
+		for (FileInput fileInput : fileInputs) {
+			if (fileInput.loaded) {
+				bytes += fileInput.section.getSize();
+			}
+		}
+		return bytes;
+	}
+
+	String[] getTerms() {
+		return terms;
+	}
+
+	int getMaxAmountTerms() {
+		return maxAmountTerms;
+	}
+
+	int getCountAllMinutes() {
+		return base.getCountAllMinutes();
+	}
+
+	/**
+	 * Counts of the minutes windowStart..windowEnd. The file inputs of the window are loaded, the ones of the previous
+	 * window which are not needed any more are unloaded.
+	 */
+	WindowCounts getWindowCounts(int windowStart, int windowEnd) {
+		List<FileInput> lastFileInputs = currentFileInputs;
+		currentFileInputs = getAndLoadFiles(windowStart, windowEnd);
+		if (lastFileInputs != null) {
+			for (FileInput fileInput : lastFileInputs) {
+				if (!currentFileInputs.contains(fileInput)) {
+					fileInput.unloadData();
+				}
+			}
+		}
+		prefetchFileInputs(windowEnd);
+		if (verbosity >= 2) {
+			log("create window: " + windowStart + " -> " + windowEnd + " (file input: " + StringUtils.join(currentFileInputs, ", ") + ")");
+		}
+		long countStart = System.nanoTime();
+
+		int parts = currentFileInputs.size();
+		if (termCountsBuffers.length < parts) {
+			termCountsBuffers = new int[parts][terms.length];
+		}
+		int[][] amountTermsCounts = new int[parts][];
+		int end, start, startIndex, endIndex;
+		for (int part = 0; part < parts; part++) {
+			FileInput fileInput = currentFileInputs.get(part);
+			start = (fileInput.start < windowStart) ? windowStart : fileInput.start;
+			end = (fileInput.end > windowEnd) ? windowEnd : fileInput.end;
+			startIndex = start - fileInput.start;
+			endIndex = startIndex + (end - start);
+
+			log("file input: " + start + " -> " + end + ", index: " + startIndex + "..." + endIndex);
+			fileInput.computeTermDistribution(termCountsBuffers[part], startIndex, endIndex);
+			amountTermsCounts[part] = fileInput.computeAmountTermsDistribution(startIndex, endIndex);
+		}
+
+		// the window only keeps the terms it contains
+		int size = 0;
+		for (int term = 0; term < terms.length; term++) {
+			if (hasCount(term, parts)) {
+				size++;
+			}
+		}
+		int[] termIds = new int[size];
+		int[][] termCounts = new int[parts][size];
+		size = 0;
+		for (int term = 0; term < terms.length; term++) {
+			if (hasCount(term, parts)) {
+				termIds[size] = term;
+				for (int part = 0; part < parts; part++) {
+					termCounts[part][size] = termCountsBuffers[part][term];
+				}
+				size++;
+			}
+		}
+		countTime += System.nanoTime() - countStart;
+		return new WindowCounts(termIds, termCounts, amountTermsCounts);
+	}
+
+	private boolean hasCount(int term, int parts) {
+		for (int part = 0; part < parts; part++) {
+			if (termCountsBuffers[part][term] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Counts of the amount of terms in tweets of the minutes windowStart..windowEnd without term counts, for the
+	 * windows before a shard. Only the amount counts are mapped for this, they are released by endCounting.
+	 */
+	WindowCounts countAmountTerms(int windowStart, int windowEnd) {
+		List<int[]> amountTermsCounts = new ArrayList<>();
+		for (FileInput fileInput : fileInputs) {
+			if (fileInput.end < windowStart || fileInput.start > windowEnd) {
+				continue;
+			}
+			if (fileInput.amountTermsCounts == null) {
+				try {
+					fileInput.amountTermsCounts = fileInput.section.mapAmountCounts();
+				} catch (IOException e) {
+					System.out.println(e.getMessage());
+				}
+			}
+			int start = Math.max(fileInput.start, windowStart);
+			int end = Math.min(fileInput.end, windowEnd);
+			amountTermsCounts.add(fileInput.computeAmountTermsDistribution(start - fileInput.start, end - fileInput.start));
+		}
+		return new WindowCounts(new int[0], new int[0][], amountTermsCounts.toArray(new int[amountTermsCounts.size()][]));
+	}
+
+	void endCounting() {
+		for (FileInput fileInput : fileInputs) {
+			if (!fileInput.loaded && fileInput.prefetched == null) {
+				fileInput.amountTermsCounts = null;
+			}
+		}
+	}
+
+	private List<FileInput> getAndLoadFiles(int start, int end) {
+		List<FileInput> currentFileInputs = fileInputs.stream()
+				.filter(input -> (
+						input.start >= start && input.end <= end) // files in range
+						|| (input.start <= end && input.end > end) // transition from lower to higher window
+						|| (input.start < start && input.end >= start)) // transition form higher to lower window
+				.collect(Collectors.toList());
+		currentFileInputs.forEach(input -> input.loadData());
+		return currentFileInputs;
+	}
+
+	/**
+	 * Starts loading the file inputs after the window in the background, as long as they fit into PREFETCH_MEMORY.
+	 */
+	private void prefetchFileInputs(int windowEnd) {
+		if (prefetcher == null) {
+			return;
+		}
+		for (FileInput fileInput : fileInputs) {
+			if (fileInput.end <= windowEnd || fileInput.loaded || fileInput.prefetched != null) {
+				continue;
+			}
+			if (residentBytes + fileInput.section.getSize() > prefetchMemory) {
+				break;
+			}
+			fileInput.prefetch();
+		}
+	}
+
+	public void close() throws IOException {
+		if (prefetcher != null) {
+			prefetcher.shutdownNow();
+		}
+		if (verbosity >= 1) {
+			System.out.println("file inputs loaded in " + TimeUnit.NANOSECONDS.toMillis(fileLoadTime) + " ms, waited for them "
+					+ TimeUnit.NANOSECONDS.toMillis(fileWaitTime) + " ms");
+		}
+		base.close();
+	}
+
+	/**
+	 * Progress of the file inputs and windows, only shown with VERBOSITY 2.
+	 */
+	private void log(String message) {
+		if (verbosity >= 2) {
+			System.out.println(message);
+		}
+	}
+}
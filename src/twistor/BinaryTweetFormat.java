@@ -0,0 +1,224 @@
+/*
+ * @(#)BinaryTweetFormat.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+/**
+ * Dictionary-encoded binary form of the simulated stream (GlobalParameters.BINARY_OUTPUT).
+ *
+ * A file starts with a header (magic, version, amount of terms) followed by the term dictionary (length and UTF-8
+ * bytes of every term). After that the tweets follow in gzip compressed blocks, one block per chunk of a window
+ * (GlobalParameters.CHUNK_SIZE). A block starts with the amount of tweets, the uncompressed and the compressed
+ * length. Every tweet is stored as varints: tweet id, creation date in epoch seconds, amount of terms and the term
+ * ids. The terms are the words of the content of the text format in the same order, so the text of a tweet is the
+ * terms joined by a space.
+ *
+ * @version 1.0
+ */
+public class BinaryTweetFormat {
+	private static final int MAGIC = 0x54575431; // TWT1
+	private static final int VERSION = 1;
+
+	/**
+	 * Reads the tweets of a binary stream file one after the other.
+	 */
+	public static class Reader implements Closeable {
+		private DataInputStream input;
+		private String[] dictionary;
+		private long headerLength;
+
+		private byte[] block = new byte[0];
+		private int position = 0;
+		private int remainingTweets = 0;
+
+		private long tweetId;
+		private long timestamp;
+		private int[] termIds = new int[64];
+		private int termCount;
+
+		public Reader(String fileName) throws IOException {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+			try {
+				if (input.readInt() != MAGIC) {
+					throw new IOException(fileName + " is no binary tweet stream");
+				}
+				int version = input.readInt();
+				if (version != VERSION) {
+					throw new IOException(fileName + " has version " + version + ", expected " + VERSION);
+				}
+				dictionary = new String[input.readInt()];
+				headerLength = 12;
+				for (int i = 0; i < dictionary.length; i++) {
+					byte[] bytes = new byte[input.readInt()];
+					input.readFully(bytes);
+					dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+					headerLength += 4 + bytes.length;
+				}
+			} catch (IOException e) {
+				input.close();
+				throw e;
+			}
+		}
+
+		public String[] getDictionary() {
+			return dictionary;
+		}
+
+		/**
+		 * Size of the header and the dictionary in bytes, the first block starts here.
+		 */
+		public long getHeaderLength() {
+			return headerLength;
+		}
+
+		/**
+		 * Moves to the next tweet.
+		 * @return false at the end of the file
+		 * @throws IOException
+		 */
+		public boolean next() throws IOException {
+			while (remainingTweets == 0) {
+				if (!readBlock()) {
+					return false;
+				}
+			}
+			remainingTweets--;
+			tweetId = readVarLong();
+			timestamp = readVarLong() * 1000;
+			termCount = (int)readVarLong();
+			if (termCount > termIds.length) {
+				termIds = new int[Math.max(termCount, termIds.length * 2)];
+			}
+			for (int i = 0; i < termCount; i++) {
+				termIds[i] = (int)readVarLong();
+			}
+			return true;
+		}
+
+		public long getTweetId() {
+			return tweetId;
+		}
+
+		/**
+		 * Creation date in milliseconds.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public int getTermCount() {
+			return termCount;
+		}
+
+		public int getTermId(int i) {
+			return termIds[i];
+		}
+
+		public void close() throws IOException {
+			input.close();
+		}
+
+		private boolean readBlock() throws IOException {
+			int tweets;
+			try {
+				tweets = input.readInt();
+			} catch (EOFException e) {
+				return false;
+			}
+			int uncompressedLength = input.readInt();
+			byte[] compressed = new byte[input.readInt()];
+			input.readFully(compressed);
+
+			if (block.length < uncompressedLength) {
+				block = new byte[uncompressedLength];
+			}
+			try (DataInputStream gzip = new DataInputStream(new GzipCompressorInputStream(new ByteArrayInputStream(compressed)))) {
+				gzip.readFully(block, 0, uncompressedLength);
+			}
+			position = 0;
+			remainingTweets = tweets;
+			return true;
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = block[position++];
+				value |= (long)(b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+
+	/**
+	 * Checks the magic number at the start of the file.
+	 */
+	public static boolean isBinary(String fileName) throws IOException {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(fileName))) {
+			return input.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Header and dictionary of a file.
+	 */
+	static byte[] encodeHeader(String[] dictionary) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(dictionary.length);
+			for (String term : dictionary) {
+				byte[] termBytes = term.getBytes(StandardCharsets.UTF_8);
+				output.writeInt(termBytes.length);
+				output.write(termBytes);
+			}
+			output.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Replaces the encoded tweets with the compressed block of them.
+	 */
+	static void compressBlock(TweetEncoder tweets, int tweetCount) {
+		try {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(tweets.length() / 2 + 64);
+			try (GzipCompressorOutputStream gzip = new GzipCompressorOutputStream(compressed)) {
+				tweets.writeTo(gzip);
+			}
+			int uncompressedLength = tweets.length();
+			tweets.reset();
+			tweets.appendInt(tweetCount);
+			tweets.appendInt(uncompressedLength);
+			tweets.appendInt(compressed.size());
+			tweets.append(compressed.toByteArray());
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -3,11 +3,9 @@
  */
 package twistor;
 
-import java.io.File;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -23,43 +21,88 @@ public class Event {
 		BORIS, BOSTON_BOMBING, CHARLOTTE, GERMANWINGS, MH17, NEPAL, PHILIP, POPE_ELECTION, ROBIN, WORLDCUP, SIMULATED
 	}
 	
-	public class EventInputEntry {
-		private long timestamp;
-		private Double idf;
+	/**
+	 * Idf values of a term, one per second starting with the first timestamp. Missing values are NaN.
+	 */
+	public static class IdfSeries {
+		private long firstTimestamp;
+		private double[] idfs;
+		private double[] idfFactors; // e^idf, the factor between the amount of tweets and of the term
 		
-		protected EventInputEntry(long timestamp, Double idf) {
-			this.timestamp = timestamp;
-			this.idf = idf;
+		public IdfSeries(long firstTimestamp, double[] idfs) {
+			this.firstTimestamp = firstTimestamp;
+			this.idfs = idfs;
+			this.idfFactors = new double[idfs.length];
+			for (int second = 0; second < idfs.length; second++) {
+				idfFactors[second] = Double.isNaN(idfs[second]) ? 0 : Math.pow(Math.E, idfs[second]);
+			}
 		}
-
-		public Double getIdf() {
-			return idf;
+		
+		private IdfSeries(long firstTimestamp, double[] idfs, double[] idfFactors) {
+			this.firstTimestamp = firstTimestamp;
+			this.idfs = idfs;
+			this.idfFactors = idfFactors;
 		}
 		
-		public String toString() {
-			Date date = new Date();
-			date.setTime(timestamp*1000);
-			
-			return date.toString() + " -> " + idf; 
+		public int size() {
+			return idfs.length;
+		}
+		
+		public boolean hasIdf(int second) {
+			return !Double.isNaN(idfs[second]);
+		}
+		
+		public double getIdf(int second) {
+			return idfs[second];
+		}
+		
+		public double getIdfFactor(int second) {
+			return idfFactors[second];
+		}
+		
+		/**
+		 * Values after from and before to (timestamps in seconds).
+		 */
+		private IdfSeries range(long fromTimestamp, long toTimestamp) {
+			int start = (int)Math.max(fromTimestamp + 1 - firstTimestamp, 0);
+			int end = (int)Math.max(Math.min(toTimestamp - firstTimestamp, idfs.length), start);
+			return new IdfSeries(firstTimestamp + start, Arrays.copyOfRange(idfs, start, end), Arrays.copyOfRange(idfFactors, start, end));
 		}
-	}	
+	}
 	
 	private EventId id;
+	private String name;
+	protected StreamParameters parameters;
 	protected long eventStart = 0;
-	protected Map<String, List<EventInputEntry>> termEventInputEntries = new HashMap<>();
+	protected Map<String, IdfSeries> termIdfs = new HashMap<>();
 	private int startDelay = 0; // in seconds
 	private List<String> eventTerms;
+	// the idf values are loaded when the event is used, until then the settings are only kept
+	private boolean loaded;
+	private String eventStartTime;
 	
 	public EventId getId() {
 		return id;
 	}
 	
+	/**
+	 * Name of the event in the comments and the events file, the id unless there are several events with the id.
+	 */
+	public String getName() {
+		return name;
+	}
+	
 	public long getEventStart() {
+		load();
 		return eventStart;
 	}
 	
-	public Map<String, List<EventInputEntry>> getTermEventInputEntries() {
-		return termEventInputEntries;
+	/**
+	 * Idf values of the selected terms, lookups are array reads by the second of the event.
+	 */
+	public Map<String, IdfSeries> getTermIdfs() {
+		load();
+		return termIdfs;
 	}
 
 	/***
@@ -71,94 +114,101 @@ public class Event {
 	}
 	
 	public void setStartDelayInSeconds(int value) {
+		load();
 		startDelay = value;
 		eventStart += value;
 	}
 	
 	public String toString() {
-		return id.toString();
+		return name;
 	}
 
 	public Event(EventId id) {
+		this(id, new StreamParameters());
+	}
+	
+	/**
+	 * Event of a stream with the parameters (event directory, start and trimming) of the stream.
+	 */
+	public Event(EventId id, StreamParameters parameters) {
+		this(id, id.toString(), parameters);
+	}
+	
+	protected Event(EventId id, String name, StreamParameters parameters) {
 		this.id = id;
-
-		if (id != EventId.SIMULATED) {
-			List<String> lines = Helper.getAllLines(new File(GlobalParameters.EVENT_DIR + "/" + id.toString().toLowerCase() + "/" + "data.txt"), 0);
-			if (lines != null) {
-				for (String line : lines) {
-					String[] lineData = line.split("\t");
-					
-					String term = lineData[2];
-					if (!termEventInputEntries.containsKey(term))
-						termEventInputEntries.put(term, new ArrayList<>());
-					
-					// missing value
-					Double idf = Double.valueOf(lineData[1]);
-					if (Double.isNaN(idf) || Double.isInfinite(idf)) {
-						idf = null;
-					}
-					
-					long timestamp = Long.valueOf(lineData[0]);
-					termEventInputEntries.get(term).add(new EventInputEntry(timestamp, idf));
-				}
-			}	
+		this.name = name;
+		this.parameters = parameters;
+		this.loaded = id == EventId.SIMULATED;
+	}
+	
+	/**
+	 * Reads the idf values (see EventProfile) and applies the event start and the selection of the terms.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		
+		String eventDir = parameters.EVENT_DIR + "/" + id.toString().toLowerCase() + "/";
+		termIdfs = EventProfile.load(eventDir + "data.txt", eventDir + "data.bin");
+		if (eventStartTime != null) {
+			applyEventStart(eventStartTime);
+		}
+		if (eventTerms != null) {
+			termIdfs.keySet().retainAll(eventTerms);
 		}
 	}
 	
 	public void setEventStart(String eventStart) {
+		if (loaded) {
+			applyEventStart(eventStart);
+		}
+		else {
+			eventStartTime = eventStart;
+		}
+	}
+	
+	private void applyEventStart(String eventStart) {
 		long secondsEventStart = Helper.timeStringToSeconds(eventStart);
 		
-		if (!termEventInputEntries.isEmpty()) {
+		if (!termIdfs.isEmpty()) {
 			// transform official event start timestamp to twistor event start timestamp
-			this.eventStart = Helper.timeStringToSeconds(GlobalParameters.DATE_START) + (secondsEventStart - getFirstTimestamp());
+			this.eventStart = Helper.timeStringToSeconds(parameters.DATE_START) + (secondsEventStart - getFirstTimestamp());
 		}
 		
-		if (GlobalParameters.TRIM_EVENT) {
-			long fromTimestamp = secondsEventStart - (GlobalParameters.MINUTES_BEFORE_EVENT_START*60);
-			long toTimestamp = fromTimestamp + (GlobalParameters.EVENT_DURATION*60);
+		if (parameters.TRIM_EVENT) {
+			long fromTimestamp = secondsEventStart - (parameters.MINUTES_BEFORE_EVENT_START*60);
+			long toTimestamp = fromTimestamp + (parameters.EVENT_DURATION*60);
 			filterIdfValues(Helper.timestampToString(fromTimestamp), Helper.timestampToString(toTimestamp));
 			
 			// event start also has to be adapted 
-			this.eventStart = Helper.timeStringToSeconds(GlobalParameters.DATE_START) + (GlobalParameters.MINUTES_BEFORE_EVENT_START*60);
+			this.eventStart = Helper.timeStringToSeconds(parameters.DATE_START) + (parameters.MINUTES_BEFORE_EVENT_START*60);
 		}
 	}
 	
 	private long getFirstTimestamp() {
-		return termEventInputEntries.values().stream().findFirst().get().get(0).timestamp;
+		return termIdfs.values().stream().findFirst().get().firstTimestamp;
 	}
 	
 	public void selectTerms(String... terms) {
-		List<String> termsList = Helper.toList(terms);
-		eventTerms = termsList;
-		Iterator<Entry<String, List<EventInputEntry>>> iterator = termEventInputEntries.entrySet().iterator();
-		
-		while (iterator.hasNext()) {
-			Entry<String, List<EventInputEntry>> entry = iterator.next();
-			
-			if (!termsList.contains(entry.getKey())) {
-				iterator.remove();
-			}
+		eventTerms = Helper.toList(terms);
+		if (loaded) {
+			termIdfs.keySet().retainAll(eventTerms);
 		}
 	}
 	
 	public List<String> getEventTerms() {
-		return this.eventTerms;
+		return eventTerms != null ? eventTerms : new ArrayList<>(getTermIdfs().keySet());
 	}
 	
 	public void filterIdfValues(String from, String to) {
+		load();
 		long fromTimestamp = Helper.timeStringToSeconds(from);
 		long toTimestamp = Helper.timeStringToSeconds(to);
 		
-		for (List<EventInputEntry> eventEntryList : termEventInputEntries.values()) {
-			Iterator<EventInputEntry> eventEntryIterator = eventEntryList.iterator();
-			
-			while (eventEntryIterator.hasNext()) {
-				EventInputEntry eventInput = eventEntryIterator.next();
-				
-				if (eventInput.timestamp <= fromTimestamp || eventInput.timestamp >= toTimestamp) {
-					eventEntryIterator.remove();
-				}
-			}
+		for (Entry<String, IdfSeries> entry : termIdfs.entrySet()) {
+			entry.setValue(entry.getValue().range(fromTimestamp, toTimestamp));
 		}
 	}
 
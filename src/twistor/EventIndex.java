@@ -0,0 +1,84 @@
+/*
+ * @(#)EventIndex.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Intervals of the events of the stream, to find the events which are active at an idf window.
+ *
+ * An event is active from its start delay until the last value of its longest term. The events are sorted by their
+ * start, a cursor adds the events starting at an idf window and the caller removes them when they are over. An idf
+ * window only visits the active events instead of all events of the stream.
+ *
+ * @version 1.0
+ */
+class EventIndex {
+	private int[] order; // indexes of the events sorted by start
+	private int[] starts; // start of the events in this order
+	private int[] lengths; // by index of the event
+	private int maxLength = 0;
+
+	EventIndex(List<Event> events) {
+		lengths = new int[events.size()];
+		long[] sorted = new long[events.size()];
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			for (Event.IdfSeries idfs : event.getTermIdfs().values()) {
+				lengths[i] = Math.max(lengths[i], idfs.size());
+			}
+			maxLength = Math.max(maxLength, lengths[i]);
+			sorted[i] = (long)event.getStartDelay() << 32 | i;
+		}
+		Arrays.sort(sorted);
+
+		order = new int[sorted.length];
+		starts = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			order[i] = (int)sorted[i];
+			starts[i] = (int)(sorted[i] >> 32);
+		}
+	}
+
+	/**
+	 * Idf windows the event has values for, counted from its start delay.
+	 */
+	int getLength(int event) {
+		return lengths[event];
+	}
+
+	/**
+	 * Cursor for the idf windows from idfWindow on, every window uses its own cursor.
+	 */
+	Cursor cursor(int idfWindow) {
+		// no event started before the longest event is still active
+		int first = Arrays.binarySearch(starts, idfWindow - maxLength);
+		while (first > 0 && starts[first - 1] == idfWindow - maxLength) {
+			first--;
+		}
+		return new Cursor(first >= 0 ? first : -first - 1);
+	}
+
+	class Cursor {
+		private BitSet active = new BitSet();
+		private int next;
+
+		private Cursor(int next) {
+			this.next = next;
+		}
+
+		/**
+		 * Events which started until the idf window and were not cleared, idf windows have to be visited in ascending
+		 * order. Events which are over have to be cleared by the caller.
+		 */
+		BitSet advance(int idfWindow) {
+			while (next < order.length && starts[next] <= idfWindow) {
+				active.set(order[next++]);
+			}
+			return active;
+		}
+	}
+}
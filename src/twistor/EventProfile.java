@@ -0,0 +1,146 @@
+/*
+ * @(#)EventProfile.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Binary cache of the idf values of an event (data.txt of the event directory).
+ *
+ * The cache (data.bin next to data.txt) stores every term with the second of its first value and the idf values of
+ * all following seconds as doubles, missing values are NaN. It is created from data.txt on the first use (or if
+ * data.txt is newer) and read afterwards without parsing any text.
+ *
+ * @version 1.0
+ */
+class EventProfile {
+	private static final int MAGIC = 0x45565031; // EVP1
+	private static final int VERSION = 1;
+
+	/**
+	 * Loads the idf values of the terms of the text file, the map does not keep the order of the file.
+	 * @return empty map if there is no text file
+	 */
+	static Map<String, Event.IdfSeries> load(String textFile, String binaryFile) {
+		File text = new File(textFile);
+		File binary = new File(binaryFile);
+		try {
+			if (text.exists() && (!binary.exists() || text.lastModified() > binary.lastModified() || !isCurrentVersion(binary))) {
+				convert(textFile, binaryFile);
+			}
+			if (!binary.exists()) {
+				System.out.println(textFile);
+				return new HashMap<>();
+			}
+			return read(binaryFile);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			return new HashMap<>();
+		}
+	}
+
+	private static boolean isCurrentVersion(File binary) throws IOException {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(binary))) {
+			return binary.length() >= 8 && input.readInt() == MAGIC && input.readInt() == VERSION;
+		}
+	}
+
+	private static Map<String, Event.IdfSeries> read(String binaryFile) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile), 1 << 16))) {
+			input.readInt();
+			input.readInt();
+			int termCount = input.readInt();
+			Map<String, Event.IdfSeries> series = new HashMap<>();
+			for (int i = 0; i < termCount; i++) {
+				String term = input.readUTF();
+				long firstTimestamp = input.readLong();
+				double[] idfs = new double[input.readInt()];
+				for (int second = 0; second < idfs.length; second++) {
+					idfs[second] = input.readDouble();
+				}
+				series.put(term, new Event.IdfSeries(firstTimestamp, idfs));
+			}
+			return series;
+		}
+	}
+
+	/**
+	 * Idf values of a term while the text file is read.
+	 */
+	private static class Values {
+		private long firstTimestamp;
+		private double[] idfs = new double[3600];
+		private int size = 0;
+
+		private Values(long firstTimestamp) {
+			this.firstTimestamp = firstTimestamp;
+		}
+	}
+
+	private static void convert(String textFile, String binaryFile) throws IOException {
+		List<String> lines = Helper.getAllLines(new File(textFile), 0);
+		if (lines == null) {
+			throw new IOException("can not read " + textFile);
+		}
+
+		Map<String, Values> terms = new LinkedHashMap<>();
+		for (String line : lines) {
+			String[] lineData = line.split("\t");
+			String term = lineData[2];
+			long timestamp = Long.valueOf(lineData[0]);
+			// missing value
+			double idf = Double.valueOf(lineData[1]);
+			if (Double.isInfinite(idf)) {
+				idf = Double.NaN;
+			}
+
+			Values values = terms.computeIfAbsent(term, key -> new Values(timestamp));
+			int second = (int)(timestamp - values.firstTimestamp);
+			if (second < 0) {
+				throw new IOException(textFile + ": values of " + term + " are not ordered by time");
+			}
+			if (second >= values.idfs.length) {
+				values.idfs = Arrays.copyOf(values.idfs, Math.max(values.idfs.length * 2, second + 1));
+			}
+			// seconds without a value are missing values
+			Arrays.fill(values.idfs, values.size, Math.max(values.size, second), Double.NaN);
+			values.idfs[second] = idf;
+			values.size = Math.max(values.size, second + 1);
+		}
+
+		// written to a temporary file first, so an interrupted conversion is never taken for a cache
+		Path temporary = Paths.get(binaryFile + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(terms.size());
+			for (Entry<String, Values> entry : terms.entrySet()) {
+				Values values = entry.getValue();
+				output.writeUTF(entry.getKey());
+				output.writeLong(values.firstTimestamp);
+				output.writeInt(values.size);
+				for (int second = 0; second < values.size; second++) {
+					output.writeDouble(values.idfs[second]);
+				}
+			}
+		}
+		Files.move(temporary, Paths.get(binaryFile), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -5,6 +5,7 @@ package twistor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -24,8 +25,18 @@ public class EventSimulated extends Event {
 	private int[] factors = new int[] { 5, 5, 5, 18, 17 };
 	
 	public EventSimulated(EventId id) {
-		super(id);
-		this.eventStart = Helper.timeStringToSeconds(GlobalParameters.DATE_START) + GlobalParameters.MINUTES_BEFORE_EVENT_START * 60;
+		this(id, new StreamParameters());
+	}
+	
+	public EventSimulated(EventId id, StreamParameters parameters) {
+		this(id, id.toString(), parameters);
+	}
+	
+	public EventSimulated(EventId id, String name, StreamParameters parameters) {
+		super(id, name, parameters);
+		// the terms keep the order they are added in
+		this.termIdfs = new LinkedHashMap<>();
+		this.eventStart = Helper.timeStringToSeconds(parameters.DATE_START) + parameters.MINUTES_BEFORE_EVENT_START * 60;
 	}
 	
 	/***
@@ -64,13 +75,13 @@ public class EventSimulated extends Event {
 		double diff = eventIdfStart - minIdf;
 		double eventDropIdf = eventIdfStart - ((eventDropIdfInput * diff) / 10);
 		
-		int eventDurationLeft = GlobalParameters.EVENT_DURATION;
-		List<EventInputEntry> entryList = new ArrayList<>();
-		termEventInputEntries.put(term, entryList);
+		int eventDurationLeft = parameters.EVENT_DURATION;
+		List<Double> entryList = new ArrayList<>();
 		
 		// before event
-		long start = Helper.timeStringToSeconds(GlobalParameters.DATE_START);
-		int duration = GlobalParameters.MINUTES_BEFORE_EVENT_START;
+		long start = Helper.timeStringToSeconds(parameters.DATE_START);
+		long firstTimestamp = start;
+		int duration = parameters.MINUTES_BEFORE_EVENT_START;
 		setBeforeEventStart(entryList, eventIdfStart, start, duration);
 		eventDurationLeft -= duration;
 		
@@ -94,9 +105,15 @@ public class EventSimulated extends Event {
 			start += 60;
 			addEntriesIdf(entryList, eventDropIdf, eventEndFactor, start, true);
 		}
+		
+		double[] idfs = new double[entryList.size()];
+		for (int i = 0; i < idfs.length; i++) {
+			idfs[i] = entryList.get(i) == null ? Double.NaN : entryList.get(i);
+		}
+		termIdfs.put(term, new IdfSeries(firstTimestamp, idfs));
 	}
 	
-	private void setBeforeEventStart(List<EventInputEntry> entryList, double eventIdfStart, long start, int duration) {
+	private void setBeforeEventStart(List<Double> entryList, double eventIdfStart, long start, int duration) {
 		for (int i = 0; i < duration; i++) {
 			if (i > 0) {
 				start += 60;
@@ -105,7 +122,7 @@ public class EventSimulated extends Event {
 		}
 	}
 	
-	private void addEntriesIdf(List<EventInputEntry> entryList, double idfValue, double step, long start, boolean up) {
+	private void addEntriesIdf(List<Double> entryList, double idfValue, double step, long start, boolean up) {
 		List<Double> idfValues = new ArrayList<>();
 		
 		if (step == 0) {
@@ -146,11 +163,11 @@ public class EventSimulated extends Event {
 	 * @param idfValues
 	 * @return
 	 */
-	private List<EventInputEntry> addEntriesEvenForMinute(List<EventInputEntry> entryList, long startTimestamp, int duration, List<Double> idfValues) {
+	private List<Double> addEntriesEvenForMinute(List<Double> entryList, long startTimestamp, int duration, List<Double> idfValues) {
 		int amountEntriesInMinute = idfValues.size();
 		if (amountEntriesInMinute == 60) {
 			for (int i = 0; i < duration; i++) {
-				entryList.add(new EventInputEntry(startTimestamp++, idfValues.get(i)));
+				entryList.add(idfValues.get(i));
 			}
 		}
 		else {
@@ -168,16 +185,15 @@ public class EventSimulated extends Event {
 				}
 				
 				if (minuteDistribution > 0 && minuteDistribution%fraction == (fraction - 1)) {
-					entryList.add(new EventInputEntry(startTimestamp, idfValues.get(valuesAdded++)));
+					entryList.add(idfValues.get(valuesAdded++));
 				}
 				else if (missedEntries > 0) {
-					entryList.add(new EventInputEntry(startTimestamp, idfValues.get(valuesAdded++)));
+					entryList.add(idfValues.get(valuesAdded++));
 					missedEntries--;
 				}
 				else {
-					entryList.add(new EventInputEntry(startTimestamp, null));
+					entryList.add(null);
 				}
-				startTimestamp++;
 			}
 		}
 		return entryList;
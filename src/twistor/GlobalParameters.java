@@ -32,8 +32,38 @@ public class GlobalParameters {
 	// the higher the value the more tweets will be created
 	public static int SCALE = 100;
 	
+	// seed of all random decisions (event placement, order of the tweets)
+	// the same seed and parameters create the same stream
+	// -1 will use a random seed, which is printed at the start
+	public static long SEED = -1;
+	
+	// create the windows concurrently on all cores
+	// the simulated stream is the same as without this option
+	public static boolean PARALLEL_GENERATION = false;
+	
+	// create only the minutes SHARD_START (inclusive) to SHARD_END (exclusive) of the stream
+	// the shards of a stream can be created by separate processes and joined with StreamMerger
+	// all shards need the same SEED and parameters, a shard must start and end at a multiple of WINDOW_SIZE (60 if SPLIT_IN_HOUR_FILES)
+	// SHARD_END = -1 will create the stream until its end
+	public static int SHARD_START = 0;
+	public static int SHARD_END = -1;
+	
 	// path to the file which contains the information to create the simulated stream
 	public static String TWISTOR_BASE = "./data/stream.zip";
+	
+	// path to the pre-decoded binary form of TWISTOR_BASE
+	// it is created from TWISTOR_BASE on the first run (or if TWISTOR_BASE is newer) and memory-mapped afterwards
+	public static String TWISTOR_BASE_BINARY = "./data/stream.bin";
+	
+	// memory in MB for the file inputs of TWISTOR_BASE_BINARY which are read in advance
+	// the file inputs following the current window are loaded in the background as long as they fit in
+	// 0 will load every file input when it is needed
+	public static int PREFETCH_MEMORY = 1024;
+	
+	// maximum amount of tweets which are created and written at once, larger windows are split into chunks
+	// the memory of the creation is bounded by it instead of by SCALE * WINDOW_SIZE
+	// 0 will create every window at once
+	public static int CHUNK_SIZE = 50000;
 
 	
 	////////////
@@ -52,8 +82,47 @@ public class GlobalParameters {
 	// every row with a comment starts with '#'
 	public static boolean INSERT_COMMENTS = false;
 	
+	// write the simulated twitter stream in the dictionary-encoded binary format of BinaryTweetFormat
+	// instead of text lines, smaller and read without parsing or tokenizing by TwistorBinaryScan
+	// no header line and no comments are written in this format
+	public static boolean BINARY_OUTPUT = false;
+	
 	// the output directory for the file(s) with the simulated twitter stream
 	public static String OUTPUT_DIR = "./data/output";
+	
+	// amount of progress shown on the console while the stream is created
+	// 0 = only errors, 1 = start and summary of the stream, 2 = every window and file input (slows down small windows)
+	// standard = 1
+	public static int VERBOSITY = 1;
+	
+	// directory the metrics of the creation (time of every phase, tweets/s, bytes written, file inputs, heap) are
+	// logged to every METRICS_INTERVAL seconds as metrics_SCALE.csv, they are also available as MBean twistor:type=Stream
+	// null will not write the log
+	public static String METRICS_DIR = null;
+	
+	// seconds between two lines of the metrics log
+	public static int METRICS_INTERVAL = 10;
+
+	
+	////////////
+	// REPLAY //
+	////////////
+	
+	// local port StreamReplay sends the stream to, it waits for one connection
+	public static int REPLAY_PORT = 9999;
+	
+	// named pipe (e.g. created with mkfifo) StreamReplay writes the stream to instead of the port
+	// null will use REPLAY_PORT
+	public static String REPLAY_PIPE = null;
+	
+	// speed of the replay relative to the creation dates of the tweets
+	// 1 is real time, 60 replays an hour in a minute
+	// 0 sends the tweets as fast as possible
+	public static double REPLAY_SPEEDUP = 1;
+	
+	// fixed amount of tweets per second for load tests, the creation dates are ignored then
+	// 0 will use REPLAY_SPEEDUP
+	public static int REPLAY_RATE = 0;
 
 	
 	/////////////////////
@@ -81,9 +150,14 @@ public class GlobalParameters {
 	public static boolean AUTOMATIC_EVENT_INJECTION = true;
 	
 	// amount of the automatically added events
-	// max = 10
+	// max = 10 + AMOUNT_SIMULATED_EVENTS
 	public static int AMOUNT_EVENTS = 10;
 	
+	// amount of simulated events (three terms with random idf curves each) the automatically added events are chosen
+	// from in addition to the 10 events in EVENT_DIR, thousands of events need a small MIN_DISTANCE_BETWEEN_EVENTS
+	// standard = 0
+	public static int AMOUNT_SIMULATED_EVENTS = 0;
+	
 	// minimum distance between automatically added events in minutes
 	// here the distance between the drop of the idf values is meant
 	public static int MIN_DISTANCE_BETWEEN_EVENTS = 3;
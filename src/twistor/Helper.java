@@ -61,24 +61,15 @@ public class Helper {
     	return list;
     }
     
-    public static <T> List<T> getRandomElements(List<T> input, int elementCount) {
-    	List<T> list = new ArrayList<>();
-    	
-    	int i = 0;
-    	while (true) {
-    		Collections.shuffle(input);
-    		T firstElement = input.get(0);
-    		if (!list.contains(firstElement)) {
-    			list.add(firstElement);
-    			i++;
-    		}
-    		
-    		if (i == elementCount) {
-    			break;
-    		}
+    /**
+     * Distinct random elements of the input in random order (partial Fisher-Yates shuffle of a copy).
+     */
+    public static <T> List<T> getRandomElements(List<T> input, int elementCount, SplittableRandom rand) {
+    	List<T> list = new ArrayList<>(input);
+    	for (int i = 0; i < elementCount; i++) {
+    		Collections.swap(list, i, i + rand.nextInt(list.size() - i));
     	}
-    	
-    	return list;
+    	return new ArrayList<>(list.subList(0, elementCount));
     }
 	
 	public static List<String> getAllLines(File file, int skip) {
@@ -0,0 +1,77 @@
+/*
+ * @(#)InjectionSchedule.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Positions of an idf window which get an event term.
+ *
+ * An event term with the fraction f is added to every tweet whose position in the window is a multiple of f. The
+ * planning of an idf window lists these positions for every term and sorts them, so the tweets are written with a
+ * cursor that only stops at the injected terms. The terms of a tweet keep the iteration order of the fractions.
+ * The cost grows with the amount of injected terms instead of tweets times active terms.
+ *
+ * @version 1.0
+ */
+class InjectionSchedule {
+	/** Amount of event terms whose indexes and orders fit into the 16 bits of the packing. */
+	static final int MAX_TERMS = 1 << 16;
+
+	private Map<String, Integer> termIndexes;
+	private long[] injections = new long[64]; // position << 32 | order of the term << 16 | index of the term
+	private int size = 0;
+	private int cursor = 0;
+
+	/**
+	 * @param termIndexes index of every event term, at most MAX_TERMS terms
+	 */
+	InjectionSchedule(Map<String, Integer> termIndexes) {
+		this.termIndexes = termIndexes;
+	}
+
+	/**
+	 * Plans the positions start (inclusive) to end (exclusive) of the window.
+	 * @param amountTermsFraction fraction of every active event term
+	 */
+	void plan(Map<String, Integer> amountTermsFraction, int start, int end) {
+		size = 0;
+		cursor = 0;
+		long order = 0;
+		for (Entry<String, Integer> entry : amountTermsFraction.entrySet()) {
+			long fraction = entry.getValue();
+			long term = order++ << 16 | termIndexes.get(entry.getKey());
+			for (long position = (start + fraction - 1) / fraction * fraction; position < end; position += fraction) {
+				if (size == injections.length) {
+					injections = Arrays.copyOf(injections, size * 2);
+				}
+				injections[size++] = position << 32 | term;
+			}
+		}
+		Arrays.sort(injections, 0, size);
+	}
+
+	/**
+	 * Amount of terms the tweet at the position gets, positions have to be visited in ascending order.
+	 */
+	int count(int position) {
+		while (cursor < size && (int)(injections[cursor] >>> 32) < position) {
+			cursor++;
+		}
+		int count = 0;
+		while (cursor + count < size && (int)(injections[cursor + count] >>> 32) == position) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Index of the next term of the position given to count.
+	 */
+	int next() {
+		return (int)(injections[cursor++] & 0xFFFF);
+	}
+}
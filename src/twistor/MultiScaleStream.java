@@ -0,0 +1,130 @@
+/*
+ * @(#)MultiScaleStream.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates the simulated stream for several scales in a single pass over the base.
+ *
+ * The counts of every window are read and summed once (see BaseInput), each scale only scales them and creates its
+ * tweets on its own thread. The streams are the same as the streams created one scale at a time: every scale has its
+ * own output file, events file and state, all other parameters (including the seed, so all scales get the same
+ * events) are shared. The windows are handed to the scales through bounded queues, so a fast scale runs at most
+ * QUEUE_SIZE windows ahead of the slowest one.
+ *
+ * @version 1.0
+ */
+public class MultiScaleStream {
+	private static final int QUEUE_SIZE = 4;
+	private static final WindowCounts END = new WindowCounts(new int[0], new int[0][], new int[0][]);
+
+	/**
+	 * Usage: MultiScaleStream outputFile scale... (outputFile contains %d for the scale), e.g.
+	 * MultiScaleStream ./data/twistor_stream_%dp.csv 10 50 100
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("usage: MultiScaleStream outputFile scale... (outputFile contains %d for the scale)");
+			return;
+		}
+		int[] scales = new int[args.length - 1];
+		String[] outputFiles = new String[scales.length];
+		for (int i = 0; i < scales.length; i++) {
+			scales[i] = Integer.parseInt(args[i + 1]);
+			outputFiles[i] = String.format(args[0], scales[i]);
+		}
+		new MultiScaleStream(new StreamParameters(), scales, outputFiles);
+	}
+
+	/**
+	 * @param parameters parameters of all scales, SCALE is replaced by the scales
+	 * @param outputFiles output file of every scale (not used with SPLIT_IN_HOUR_FILES)
+	 */
+	public MultiScaleStream(StreamParameters parameters, int[] scales, String[] outputFiles) {
+		BaseInput base;
+		try {
+			base = BaseInput.open(parameters);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		if (parameters.SEED == -1) {
+			parameters = parameters.withScale(parameters.SCALE);
+			parameters.SEED = new SplittableRandom().nextLong();
+		}
+
+		List<Stream> streams = new ArrayList<>();
+		List<BlockingQueue<WindowCounts>> queues = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < scales.length; i++) {
+			Stream stream = new Stream(outputFiles[i], parameters.withScale(scales[i]), base);
+			BlockingQueue<WindowCounts> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+			Thread thread = new Thread(() -> createWindows(stream, queue), "twistor-scale-" + scales[i]);
+			streams.add(stream);
+			queues.add(queue);
+			threads.add(thread);
+			thread.start();
+		}
+
+		try {
+			Stream first = streams.get(0);
+			for (int i = parameters.SHARD_START; i < first.getShardEnd(); i += parameters.WINDOW_SIZE) {
+				WindowCounts counts = base.getWindowCounts(i, first.getWindowEnd(i));
+				for (BlockingQueue<WindowCounts> queue : queues) {
+					queue.put(counts);
+				}
+			}
+			for (BlockingQueue<WindowCounts> queue : queues) {
+				queue.put(END);
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			System.out.println(e.getMessage());
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			base.close();
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+		if (parameters.VERBOSITY >= 1) {
+			System.out.println("done");
+		}
+	}
+
+	/**
+	 * Creates the windows of one scale until the end of the queue. After an error the windows are only taken from
+	 * the queue, so the other scales are not blocked.
+	 */
+	private static void createWindows(Stream stream, BlockingQueue<WindowCounts> queue) {
+		int windowIndex = stream.getFirstWindowIndex();
+		boolean failed = false;
+		try {
+			for (WindowCounts counts = queue.take(); counts != END; counts = queue.take()) {
+				if (failed) {
+					continue;
+				}
+				try {
+					stream.createWindow(windowIndex++, counts);
+				} catch (RuntimeException e) {
+					System.out.println("scale " + stream.getParameters().SCALE + ": " + e);
+					failed = true;
+				}
+			}
+		} catch (InterruptedException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		stream.finish();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * @(#)OutputWriter.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Double-buffered writer for the lines of the simulated stream.
+ *
+ * Encoded lines (see {@link TweetEncoder}) are copied into one of two reusable direct buffers. A full buffer is written to the open file
+ * channel by a background thread while the other buffer is filled, so at most two buffers are in memory and the
+ * generator only waits if the disk is slower than the generation.
+ *
+ * @version 1.0
+ */
+class OutputWriter implements Closeable {
+	private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+	private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(2);
+	private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "twistor-output");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ByteBuffer buffer;
+	private FileChannel channel;
+	private volatile IOException error;
+
+	OutputWriter() {
+		freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	/**
+	 * Switches the output to the given file, an existing file is overwritten. Pending lines are still written to the
+	 * previous file.
+	 */
+	void open(String fileName) throws IOException {
+		closeFile();
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	boolean isOpen() {
+		return channel != null;
+	}
+
+	/**
+	 * Writes already encoded lines.
+	 */
+	void write(byte[] bytes, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (!buffer.hasRemaining()) {
+				swap();
+			}
+			int chunk = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, chunk);
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	public void close() throws IOException {
+		try {
+			closeFile();
+		}
+		finally {
+			flusher.shutdown();
+			try {
+				flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException(e.getMessage());
+			}
+		}
+		checkError();
+	}
+
+	/**
+	 * Closes the current file after its pending lines are written.
+	 */
+	void closeFile() throws IOException {
+		if (channel != null) {
+			swap();
+			FileChannel target = channel;
+			channel = null;
+			flusher.execute(() -> {
+				try {
+					target.close();
+				} catch (IOException e) {
+					error = e;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Hands the filled buffer to the background thread and continues with the free one.
+	 */
+	private void swap() throws IOException {
+		checkError();
+		if (buffer.position() == 0) {
+			return;
+		}
+		if (channel == null) {
+			throw new IOException("no output file is open");
+		}
+
+		ByteBuffer filled = buffer;
+		FileChannel target = channel;
+		filled.flip();
+		flusher.execute(() -> {
+			try {
+				while (filled.hasRemaining()) {
+					target.write(filled);
+				}
+			} catch (IOException e) {
+				error = e;
+			}
+			filled.clear();
+			freeBuffers.add(filled);
+		});
+
+		try {
+			buffer = freeBuffers.take();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	private void checkError() throws IOException {
+		if (error != null) {
+			throw error;
+		}
+	}
+}
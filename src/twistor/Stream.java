@@ -3,45 +3,37 @@
  */
 package twistor;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Queue;
+import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.TimeZone;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.lang3.StringUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  * Class for creating the artifical Twitter stream.
@@ -50,172 +42,207 @@ import org.w3c.dom.Element;
  * @version 1.0
  */
 public class Stream {
-	private Map<Integer, Integer> amountTermsDistribution = new TreeMap<>(Collections.reverseOrder());
-	private Map<String, Integer> termDistribution = new HashMap<>();
-	public static List<Event> events = new ArrayList<>();
-	private Document eventsDocument;
-	
-	private List<String> tweets = new ArrayList<>();
-	private List<Long> timestamps = new ArrayList<>();
-	private Date date = new Date();
-	private List<String> outputLines = new ArrayList<>();
+	private StreamParameters parameters;
+	private List<Event> events = new ArrayList<>();
+	private EventIndex eventIndex;
+	private Writer eventsWriter;
+	
+	private long streamStart;
+	private long lastTimestamp = -1;
+	private OutputWriter writer = new OutputWriter();
 	private int allTweetCount = 0;
 	private int allIdfWindows = 0;
 	private int window = 0;
 	private int outputFileCount = 0;
+	private long seed;
+	private SplittableRandom random; // event placement
 	
-	private ZipFile zip;
+	private BaseInput base;
+	private StreamMetrics metrics;
 	private Date outputFileDate = new Date();
-	private String outputFile = GlobalParameters.OUTPUT_DIR;
-	private String outputFileWindowSize = "_" + GlobalParameters.WINDOW_SIZE + "min";
-	private String outputFileScale = "_" + GlobalParameters.SCALE + "s";
+	private String outputFile;
+	private TweetConsumer consumer;
+	private String outputFileWindowSize;
+	private String outputFileScale;
 	
 	private String[] allTerms;
+	private byte[][] termBytes;
+	private int maxAmountTerms = 0;
+	private Map<String, Integer> eventTermIndexes = new HashMap<>(); // index of every event term in the arrays below
+	private byte[][] eventTermBytes;
+	private boolean binaryOutput = false;
+	private byte[] binaryHeader; // header and dictionary of the binary output: all terms, the event terms and ""
+	private int[] eventTermIds;
+	private int emptyTermId;
+	private Queue<TweetEncoder> encoders = new ConcurrentLinkedQueue<>();
+	private Queue<TimestampSchedule> schedules = new ConcurrentLinkedQueue<>();
 	private int countAllMinutes;
-	private int fileWindow;
-	private List<FileInput> fileInputs = new ArrayList<>();
+	private int firstWindowIndex;
+	private ForkJoinPool pool;
+	private Deque<Future<Chunk>> createdChunks = new ArrayDeque<>();
 	
-	private class FileInput {
-		private int start;
-		private int end;
-		private Map<String, int[]> termDistribution;
-		private Map<Integer, int[]> amountTermsDistribution;
-		private boolean loaded = false;
-		private ZipArchiveEntry termDistributionZipEntry;
-		private ZipArchiveEntry amountTermsDistributionZipEntry;
+	/**
+	 * One window of the stream. The planning fills in the distributions, the timestamps and the state carried over
+	 * from the previous windows (tweet id, idf windows), so the window can be created independently of all others.
+	 */
+	private class Window {
+		private int index;
+		private int[] amountTermsCounts; // amount of tweets, indexed by their amount of terms
+		private int[] termIds; // terms of the window with a count > 0
+		private int[] termCounts;
+		private int tweetCount;
+		private TimestampSchedule schedule;
+		private int firstTweetId;
+		private int firstIdfWindow;
 		
-		private FileInput(int start, int end, ZipArchiveEntry termDistributionZipEntry, ZipArchiveEntry amountTermsDistributionZipEntry) {
-			this.start = start;
-			this.end = end;
-			this.termDistributionZipEntry = termDistributionZipEntry;
-			this.amountTermsDistributionZipEntry = amountTermsDistributionZipEntry;
-		}
+		private TweetTerms tweetTerms; // terms of the tweets in the order of their creation
+		private int[] order; // tweet shown at every position of the window
+		private IdfWindowTerms[] idfWindowTerms; // event terms of the idf windows, planned once for all chunks
 		
-		public String toString() {
-			return start + " -> " + end;
+		private Window(int index) {
+			this.index = index;
 		}
+	}
+	
+	/**
+	 * Event terms of an idf window: the fractions of the active event terms in the iteration order they had while
+	 * the idf windows were visited, and the comments of the idf window. A chunk takes the state of its idf windows
+	 * from here instead of visiting the idf windows of the window before it.
+	 */
+	private static class IdfWindowTerms {
+		private Map<String, Integer> amountTermsFraction;
+		private List<String> comments;
 		
-		private void loadData() {
-			if (!loaded) {
-				termDistribution = fileToMap(false);
-				amountTermsDistribution = fileToMap(true);
-				
-				loaded = true;
-				System.out.println("loaded file input: " + start + " -> " + end);
-			}
+		private IdfWindowTerms(Map<String, Integer> amountTermsFraction, List<String> comments) {
+			this.amountTermsFraction = amountTermsFraction;
+			this.comments = comments;
 		}
+	}
+	
+	/**
+	 * Part of a window which is created and written at once, at most CHUNK_SIZE tweets. Only the chunks in progress
+	 * hold output, so the memory does not grow with the size of the windows.
+	 */
+	private class Chunk {
+		private Window window;
+		private int start; // positions of the tweets in the window
+		private int end;
+		private TweetEncoder output;
+		private String[] contents; // content of the tweets if they are given to a consumer
 		
-		@SuppressWarnings("unchecked")
-		private <T> void computeDistribution(Map<T, Integer> map, boolean keyIsInteger, int startIndex, int endIndex) {
-			@SuppressWarnings("rawtypes")
-			Set set = keyIsInteger ? amountTermsDistribution.entrySet() : termDistribution.entrySet();
-			for (Entry<T, int[]> entry : (Set<Entry<T, int[]>>)set) {
-				T key = (T)entry.getKey();
-				int arraySum = arraySum(entry.getValue(), startIndex, endIndex);
-				if (arraySum > 0) {
-					if (GlobalParameters.SCALE != 10) {
-						arraySum = (int)Helper.round((arraySum * GlobalParameters.SCALE) / (double)10, 0);
-					}
-					map.put(key, map.containsKey(key) ? map.get(key) + arraySum : arraySum);
-				}
-			}
+		private Chunk(Window window, int start, int end) {
+			this.window = window;
+			this.start = start;
+			this.end = end;
 		}
 		
-		private void unloadData() {
-			if (loaded) {
-				termDistribution.clear();
-				amountTermsDistribution.clear();
-				loaded = false;
-				System.out.println("unloaded file input: " + start + " -> " + end);
-			}
+		private boolean isLast() {
+			return end == window.tweetCount;
 		}
-		
-		private int arraySum(int[] array, int start, int end) {
-			int sum = 0;
-			for (int i = start; i <= end; i++) {
-				sum += array[i];
-			}
-			return sum;
-		}	
-		
-		@SuppressWarnings("unchecked")
-		private <T> Map<T, int[]> fileToMap(boolean keyIsInteger) {
-			Map<T, int[]> map = new HashMap<>();
-
-			try {
-				InputStream inputStream = zip.getInputStream(keyIsInteger ? amountTermsDistributionZipEntry : termDistributionZipEntry);
-				BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-				br.readLine(); // skip first line
-				
-				int i = 0;
-				String line = br.readLine();
-				while (line != null) {
-					if (keyIsInteger) {
-						String[] data = line.split("\t");
-						T key = (T)Integer.valueOf(data[0]);					
-						map.put(key, getValues(data[1]));
-					}
-					else {
-						T key = (T)allTerms[i];					
-						map.put(key, getValues(line));
-					}
-
-					line = br.readLine();
-					i++;
-				}
-				br.close();
-			} catch (Exception e) {
-				System.out.println(e.getMessage());
-			}
-
-			return map;
-		}			
-		
-		private int[] getValues(String str) {
-			int[] intArray = new int[StringUtils.countMatches(str, ",") + 1];
-			String number = null;
-			int index = 0;
-			char[] charArray = str.toCharArray();
-			for (int i = 0; i < charArray.length; i++) {
-				char c = charArray[i];
-				if (c == ',') {
-					if (number != null) {
-						intArray[index] = Integer.valueOf(number);
-					}
-					number = null;
-					index++;
-				}
-				else {
-					if (number == null) {
-						number = String.valueOf(c);
-					}
-					else {
-						number += c;
-					}
-				}
-			}
-			if (number != null) {
-				intArray[index] = Integer.valueOf(number);
-			}
-			return intArray;
-		}	
+	}
+	
+	/**
+	 * File the events of the shard writing into shardFile are written to, see {@link StreamMerger}.
+	 */
+	public static String getShardEventsFile(String shardFile) {
+		return shardFile + ".events.xml";
 	}
 	
 	public Stream(final String filename) {
+		this(filename, new StreamParameters());
+	}
+	
+	/**
+	 * Creates the stream with its own parameters instead of the current parameters.
+	 */
+	public Stream(final String filename, StreamParameters parameters) {
+		this(filename, null, parameters);
+		run();
+	}
+	
+	/**
+	 * Creates the stream without output file, the tweets are given to the consumer.
+	 */
+	public Stream(final TweetConsumer consumer) {
+		this(consumer, new StreamParameters());
+	}
+	
+	public Stream(final TweetConsumer consumer, StreamParameters parameters) {
+		this(null, consumer, parameters);
+		run();
+	}
+	
+	/**
+	 * Stream which is created window by window with createWindow from the counts of a base input it does not own,
+	 * see MultiScaleStream.
+	 */
+	Stream(final String filename, StreamParameters parameters, BaseInput base) {
+		this(filename, null, parameters);
+		start(base);
+	}
+	
+	private Stream(final String filename, TweetConsumer consumer, StreamParameters parameters) {
 		this.outputFile = filename;
-		init();
+		this.consumer = consumer;
+		this.parameters = parameters;
+		this.outputFileWindowSize = "_" + parameters.WINDOW_SIZE + "min";
+		this.outputFileScale = "_" + parameters.SCALE + "s";
+	}
+	
+	public StreamParameters getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * Events of the stream in the order they were added.
+	 */
+	public List<Event> getEvents() {
+		return events;
 	}
 	
-	private void init() {
+	private void run() {
+		BaseInput base;
+		try {
+			base = BaseInput.open(parameters);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			if (consumer != null) {
+				consumer.end();
+			}
+			return;
+		}
+		
+		start(base);
+		int windowIndex = firstWindowIndex;
+		for (int i = parameters.SHARD_START; i < getShardEnd(); i += parameters.WINDOW_SIZE, windowIndex++) {
+			createWindow(windowIndex, base.getWindowCounts(i, getWindowEnd(i)));
+		}
+		finish();
+		
+		try {
+			base.close();
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+		log(1, "done");
+	}
+	
+	/**
+	 * Prepares the output files and the events, the windows before a shard are skipped.
+	 */
+	private void start(BaseInput base) {
     	TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
-		System.out.println("Creating Twistor Stream...");
+		log(1, "Creating Twistor Stream...");
 		
 		// init output files
-		outputFileDate.setTime(Helper.timeStringToMilliseconds(GlobalParameters.DATE_START));
-		if (!GlobalParameters.SPLIT_IN_HOUR_FILES) {
-			//outputFile = GlobalParameters.OUTPUT_DIR + "/" + getOutputFileDate(outputFileDate.getTime())
+		outputFileDate.setTime(Helper.timeStringToMilliseconds(parameters.DATE_START));
+		if (consumer != null) {
+			// no output files
+		}
+		else if (!parameters.SPLIT_IN_HOUR_FILES) {
+			//outputFile = parameters.OUTPUT_DIR + "/" + getOutputFileDate(outputFileDate.getTime())
 			//				+ outputFileWindowSize
-			//				+ "_" + ((GlobalParameters.LIMIT_SIZE == -1) ? "24h" : GlobalParameters.LIMIT_SIZE + "min")
+			//				+ "_" + ((parameters.LIMIT_SIZE == -1) ? "24h" : parameters.LIMIT_SIZE + "min")
 			//				+ outputFileScale + ".txt";
 			
 			if (new File(outputFile).exists()) {
@@ -223,9 +250,13 @@ public class Stream {
 			}
 		}
 		else {
-			int limit = GlobalParameters.LIMIT_SIZE == -1 ? 23 
-					: Helper.roundToInteger(((double)GlobalParameters.LIMIT_SIZE / 60) - 1, true);
-			for (int i = 0; i <= limit; i++) {
+			int limit = parameters.LIMIT_SIZE == -1 ? 23 
+					: Helper.roundToInteger(((double)parameters.LIMIT_SIZE / 60) - 1, true);
+			if (parameters.SHARD_END != -1) {
+				// other shards write the other hours at the same time
+				limit = Math.min(limit, parameters.SHARD_END / 60 - 1);
+			}
+			for (int i = parameters.SHARD_START / 60; i <= limit; i++) {
 				String fileName = getOutputFileDateSplitHour(i);
 				
 				if (new File(fileName).exists()) {
@@ -234,64 +265,139 @@ public class Stream {
 			}
 		}
 		
+		if (isShard() && !checkShard()) {
+			exit();
+		}
+		seed = parameters.SEED == -1 ? new SplittableRandom().nextLong() : parameters.SEED;
+		random = new SplittableRandom(seed);
+		log(1, "seed: " + seed);
+		
     	initEvents();
-    	initDistribution();
+    	eventIndex = new EventIndex(events);
+    	List<String> eventTerms = new ArrayList<>();
+    	for (Event event : events) {
+    		for (String term : event.getTermIdfs().keySet()) {
+    			if (eventTermIndexes.putIfAbsent(term, eventTerms.size()) == null) {
+    				eventTerms.add(term);
+    			}
+    		}
+    	}
+    	if (eventTerms.size() > InjectionSchedule.MAX_TERMS) {
+    		System.out.println("Amount of event terms (" + eventTerms.size() + ") must be smaller or equal than "
+    				+ InjectionSchedule.MAX_TERMS + ".");
+    		exit();
+    	}
+    	eventTermBytes = TweetEncoder.encodeTerms(eventTerms.toArray(new String[eventTerms.size()]));
+    	initDistribution(base);
+    	metrics = new StreamMetrics(parameters, base);
+    	metrics.start();
+    	if (parameters.BINARY_OUTPUT && consumer == null) {
+    		initBinaryOutput();
+    	}
     	
-    	date.setTime(Helper.timeStringToMilliseconds(GlobalParameters.DATE_START));
-    	List<FileInput> currentFileInputs = null;
-    	for (int i = 0; i < countAllMinutes; i += GlobalParameters.WINDOW_SIZE, window++) {
-    		int windowEnd = i + GlobalParameters.WINDOW_SIZE - 1;
-			if (windowEnd > countAllMinutes) {
-				windowEnd = countAllMinutes - 1;
-			}
-			
-			if (currentFileInputs == null) {
-	    		currentFileInputs = getAndLoadFiles(i, windowEnd);
+    	streamStart = Helper.timeStringToMilliseconds(parameters.DATE_START);
+    	pool = parameters.PARALLEL_GENERATION ? new ForkJoinPool() : null;
+    	firstWindowIndex = skipWindows(parameters.SHARD_START);
+	}
+	
+	/**
+	 * Stops after an invalid configuration. A stream for a consumer throws instead, so the process of the consumer
+	 * keeps running.
+	 */
+	private void exit() {
+		if (consumer != null) {
+			throw new IllegalStateException("The stream can not be created with these parameters.");
+		}
+		System.exit(0);
+	}
+	
+	/**
+	 * Minute after the last window of the stream or the shard.
+	 */
+	int getShardEnd() {
+		int streamEnd = getStreamEnd();
+		return parameters.SHARD_END == -1 ? streamEnd : Math.min(parameters.SHARD_END, streamEnd);
+	}
+	
+	int getFirstWindowIndex() {
+		return firstWindowIndex;
+	}
+	
+	int getWindowEnd(int windowStart) {
+		int windowEnd = windowStart + parameters.WINDOW_SIZE - 1;
+		if (windowEnd > countAllMinutes) {
+			windowEnd = countAllMinutes - 1;
+		}
+		return windowEnd;
+	}
+	
+	/**
+	 * Creates and writes the window from the counts of its minutes, windows have to be created in ascending order.
+	 */
+	void createWindow(int windowIndex, WindowCounts counts) {
+		Window plannedWindow = planWindow(windowIndex, counts);
+		
+    	// create window
+		if (pool == null) {
+			prepareWindow(plannedWindow);
+			for (Chunk chunk : getChunks(plannedWindow)) {
+				writeChunk(createChunk(chunk));
 			}
-			else {
-				List<FileInput> lastFileInputs = currentFileInputs;
-	    		currentFileInputs = getAndLoadFiles(i, windowEnd);
-	    		for (FileInput fileInput : lastFileInputs) {
-	    			if (!currentFileInputs.contains(fileInput)) {
-	    				fileInput.unloadData();
-	    			}
-	    		}
+		}
+		else {
+			ForkJoinTask<Window> preparedWindow = pool.submit(() -> prepareWindow(plannedWindow));
+			for (Chunk chunk : getChunks(plannedWindow)) {
+				createdChunks.add(pool.submit(() -> {
+					preparedWindow.join();
+					return createChunk(chunk);
+				}));
+				// bound the chunks in memory, write the oldest one while the others are created
+				if (createdChunks.size() > 2 * pool.getParallelism()) {
+					writeChunk(createdChunks.poll());
+				}
 			}
-			System.out.println("create window: " + i + " -> " + windowEnd + " (file input: " + StringUtils.join(currentFileInputs, ", ") + ")");
-			
-    		int end, start, startIndex, endIndex;
-    		for (FileInput fileInput : currentFileInputs) {
-    			start = (fileInput.start < i) ? i : fileInput.start;
-    			end = (fileInput.end > windowEnd) ? windowEnd : fileInput.end;
-    			startIndex = start - fileInput.start;
-    			endIndex = startIndex + (end - start);
-    			
-    			System.out.println("file input: " + start + " -> " + end + ", index: " + startIndex + "..." + endIndex);
-    			fileInput.computeDistribution(termDistribution, false, startIndex, endIndex);
-    			fileInput.computeDistribution(amountTermsDistribution, true, startIndex, endIndex);
-    		}
-        		
-        	// create window
-    		termDistribution = Helper.sortMapByValue(termDistribution);
-        	createWindow();
-    		
-    		// reset data distribution
-    		termDistribution.clear();
-    		amountTermsDistribution.clear();
-    		
-    		// abort
-    		if (GlobalParameters.LIMIT_SIZE > -1 && i > 0 && GlobalParameters.LIMIT_SIZE / (double)(i + GlobalParameters.WINDOW_SIZE) <= 1) {
-    			break;
-    		}    		
-        }
+		}
+	}
+	
+	/**
+	 * Writes the remaining windows and closes the output.
+	 */
+	void finish() {
+    	while (!createdChunks.isEmpty()) {
+    		writeChunk(createdChunks.poll());
+    	}
+    	if (pool != null) {
+    		pool.shutdown();
+    	}
     	
+		long phaseStart = System.nanoTime();
 		try {
-			zip.close();
+			writer.close();
 		} catch (IOException e) {
 			System.out.println(e.getMessage());
 		}
-    	
-    	System.out.println("done");
+		metrics.record(StreamMetrics.Phase.WRITE, phaseStart);
+		if (consumer != null) {
+			consumer.end();
+		}
+		metrics.end();
+		log(1, "created " + metrics.getSummary());
+	}
+	
+	/**
+	 * Progress on the console up to the level VERBOSITY, errors are always shown.
+	 */
+	private void log(int level, String message) {
+		if (parameters.VERBOSITY >= level) {
+			System.out.println(message);
+		}
+	}
+	
+	/**
+	 * Metrics of the creation, they are complete after the stream is created.
+	 */
+	public StreamMetrics getMetrics() {
+		return metrics;
 	}
 	
 	private String getOutputFileDate(long milliseconds) {
@@ -306,133 +412,101 @@ public class Stream {
 				+ ".txt";
 	}
 	
-	private List<FileInput> getAndLoadFiles(int start, int end) {
-		List<FileInput> currentFileInputs = fileInputs.stream()
-				.filter(input -> (
-						input.start >= start && input.end <= end) // files in range
-						|| (input.start <= end && input.end > end) // transition from lower to higher window
-						|| (input.start < start && input.end >= start)) // transition form higher to lower window
-				.collect(Collectors.toList());
-		currentFileInputs.forEach(input -> input.loadData());
-		return currentFileInputs;
-	}	
+	private void initDistribution(BaseInput base) {
+		this.base = base;
+		countAllMinutes = base.getCountAllMinutes();
+		allTerms = base.getTerms();
+		termBytes = TweetEncoder.encodeTerms(allTerms);
+		maxAmountTerms = base.getMaxAmountTerms();
+	}
 	
-	private void initDistribution() {
-		List<ZipArchiveEntry> entriesList = new ArrayList<>();
-		try {
-			zip = new ZipFile(GlobalParameters.TWISTOR_BASE);
-			Enumeration<ZipArchiveEntry> entries = zip.getEntries();
-			
-			while (entries.hasMoreElements()) {
-				entriesList.add(entries.nextElement());
-			}
-			
-			// info
-			ZipArchiveEntry infoFile = entriesList.stream().filter(e -> e.getName().equals("info.txt")).findAny().get();
-			InputStream inputStream = zip.getInputStream(infoFile);
-			BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-			br.readLine(); // skip first line
-			String[] data = br.readLine().split("\t");
-			fileWindow = Integer.valueOf(data[0]);
-			countAllMinutes = Integer.valueOf(data[1]);
-			allTerms = new String[Integer.valueOf(data[2])];
-			br.close();
-			
-			// terms
-			ZipArchiveEntry termFile = entriesList.stream().filter(e -> e.getName().equals("terms.txt")).findAny().get();
-			inputStream = zip.getInputStream(termFile);
-			br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-			br.readLine(); // skip first line
-			
-			int j = 0;
-			String line = br.readLine();
-			while (line != null) {
-				allTerms[j] = line;
-				line = br.readLine();
-				j++;
-			}
-			br.close();
-			
-			// amount terms in tweets / term counts 
-			List<ZipArchiveEntry> termCountFiles = entriesList.stream().filter(e -> e.getName().startsWith("term_counts_")).collect(Collectors.toList());
-			int start = 0;
-			for (int i = 0; i < termCountFiles.size(); i++) {
-				int end = start + fileWindow;
-				if (i == termCountFiles.size() - 1) { // last file
-					end = countAllMinutes;
-				}
-				addFileInput(start, end - 1, entriesList);
-				start = end;
+	/**
+	 * Dictionary of the binary output, the terms of the base keep their ids. The empty term starts the content of
+	 * tweets which only consist of event terms, the text output starts these with a space.
+	 */
+	private void initBinaryOutput() {
+		binaryOutput = true;
+		List<String> dictionary = new ArrayList<>(allTerms.length + eventTermBytes.length + 1);
+		Map<String, Integer> termIds = new HashMap<>();
+		for (int term = 0; term < allTerms.length; term++) {
+			String value = allTerms[term] == null ? "" : allTerms[term];
+			dictionary.add(value);
+			termIds.putIfAbsent(value, term);
+		}
+		eventTermIds = new int[eventTermBytes.length];
+		for (Entry<String, Integer> eventTerm : eventTermIndexes.entrySet()) {
+			String term = eventTerm.getKey();
+			if (!termIds.containsKey(term)) {
+				termIds.put(term, dictionary.size());
+				dictionary.add(term);
 			}
-		} catch (IOException e) {
-			System.out.println(e.getMessage());
+			eventTermIds[eventTerm.getValue()] = termIds.get(term);
 		}
-	}
-	
-	private void addFileInput(int start, int end, List<ZipArchiveEntry> entriesList) {
-		ZipArchiveEntry termCounts = entriesList.stream().filter(e -> e.getName().equals("term_counts_" + start + "-" + end + ".txt")).findAny().get();
-		ZipArchiveEntry amountTermsInTweets = entriesList.stream().filter(e -> e.getName().equals("amount_terms_in_tweets_" + start + "-" + end + ".txt")).findAny().get();
-		fileInputs.add(new FileInput(start, end, termCounts, amountTermsInTweets));
+		emptyTermId = dictionary.size();
+		dictionary.add("");
+		binaryHeader = BinaryTweetFormat.encodeHeader(dictionary.toArray(new String[dictionary.size()]));
 	}
 	
 	private void initEvents() {
+		events = new ArrayList<>();
+		
 		// boris
-		Event boris = new Event(Event.EventId.BORIS);
+		Event boris = new Event(Event.EventId.BORIS, parameters);
 		boris.setEventStart("02/27/2015 21:24:00");
 		boris.selectTerms("boris", "nemtsov", "nemzow");
 		
 		// boston bombing
-		Event bostonBombing = new Event(Event.EventId.BOSTON_BOMBING);
+		Event bostonBombing = new Event(Event.EventId.BOSTON_BOMBING, parameters);
 		bostonBombing.setEventStart("04/15/2013 18:50:00");
 		bostonBombing.selectTerms("boston", "marathon", "explosion");
 		
 		// charlotte
-		Event charlotte = new Event(Event.EventId.CHARLOTTE);
+		Event charlotte = new Event(Event.EventId.CHARLOTTE, parameters);
 		charlotte.setEventStart("05/02/2015 10:09:00");
 		charlotte.selectTerms("royal", "princess", "cambridge");
 		
 		// germanwings
-		Event germanwings = new Event(Event.EventId.GERMANWINGS);
+		Event germanwings = new Event(Event.EventId.GERMANWINGS, parameters);
 		germanwings.setEventStart("03/24/2015 10:29:00");
 		germanwings.selectTerms("airbus", "plane", "crash");
 		
 		// mh17
-		Event mh17 = new Event(Event.EventId.MH17);
+		Event mh17 = new Event(Event.EventId.MH17, parameters);
 		mh17.setEventStart("07/17/2014 15:08:00");
 		mh17.selectTerms("malaysian", "airlines", "crashed");
 		
 		// nepal
-		Event nepal = new Event(Event.EventId.NEPAL);
+		Event nepal = new Event(Event.EventId.NEPAL, parameters);
 		nepal.setEventStart("04/25/2015 06:11:00");
 		nepal.selectTerms("nepal", "earthquake", "quake");		
 
 		// philip
-		Event philip = new Event(Event.EventId.PHILIP);
+		Event philip = new Event(Event.EventId.PHILIP, parameters);
 		philip.setEventStart("02/02/2014 18:22:00");
 		philip.selectTerms("philip", "hoffman", "deadphilip");
 		
 		// pope election
-		Event popeElection = new Event(Event.EventId.POPE_ELECTION);
+		Event popeElection = new Event(Event.EventId.POPE_ELECTION, parameters);
 		popeElection.setEventStart("03/13/2013 18:06:00");
 		popeElection.selectTerms("habemus", "papam", "fumata");		
 		
 		// robin
-		Event robin = new Event(Event.EventId.ROBIN);
+		Event robin = new Event(Event.EventId.ROBIN, parameters);
 		robin.setEventStart("08/11/2014 22:51:00");
 		robin.selectTerms("robin", "williams", "deadrobin");	
 		
 		// worldcup
-		Event worldcup = new Event(Event.EventId.WORLDCUP);
+		Event worldcup = new Event(Event.EventId.WORLDCUP, parameters);
 		worldcup.setEventStart("07/13/2014 21:24:00");
 		worldcup.selectTerms("mario", "goetze", "scored");	
 		
 		// simulated event example
-		EventSimulated simulated = new EventSimulated(Event.EventId.SIMULATED);
+		EventSimulated simulated = new EventSimulated(Event.EventId.SIMULATED, parameters);
 		simulated.addTerm("test1", 4, 10, 1, 1);
 		simulated.addTerm("test2", 5, 10, 4, 2);
 		simulated.setStartDelayInSeconds(60);
 		
-		if (!GlobalParameters.AUTOMATIC_EVENT_INJECTION) {
+		if (!parameters.AUTOMATIC_EVENT_INJECTION) {
 			// add events manually to stream
 			// add any event you want have in the simulated stream
 			events.add(bostonBombing);
@@ -457,338 +531,547 @@ public class Stream {
 			robin.setStartDelayInMinutes(2);
 		}
 		else {
-			// add events automatically
+			// add events automatically, out of the real events and AMOUNT_SIMULATED_EVENTS simulated events
+			List<Event> realEvents = Arrays.asList(bostonBombing, charlotte, boris, germanwings, mh17, nepal, philip, popeElection, robin, worldcup);
+			int amountEvents = parameters.AMOUNT_EVENTS;
+			int poolSize = realEvents.size() + parameters.AMOUNT_SIMULATED_EVENTS;
+			int minDistanceMinutes = parameters.MIN_DISTANCE_BETWEEN_EVENTS;
 			
-			events.add(bostonBombing);
-			events.add(charlotte);
-			events.add(boris);
-			events.add(germanwings);
-			events.add(mh17);
-			events.add(nepal);
-			events.add(philip);
-			events.add(popeElection);
-			events.add(robin);
-			events.add(worldcup);
+			int minStreamDuration = parameters.EVENT_DURATION + (amountEvents * minDistanceMinutes);
+			int toleranceMinutes = parameters.LIMIT_SIZE - minStreamDuration;
 			
-			Element eventsXmlFile = getEventsXmlFile();
-			int amountEvents = GlobalParameters.AMOUNT_EVENTS;
-			int minDistanceMinutes = GlobalParameters.MIN_DISTANCE_BETWEEN_EVENTS;
-			
-			int minStreamDuration = GlobalParameters.EVENT_DURATION + (amountEvents * minDistanceMinutes);
-			int toleranceMinutes = GlobalParameters.LIMIT_SIZE - minStreamDuration;
-			
-			if (toleranceMinutes >= 0) {
-				events = Helper.getRandomElements(events, amountEvents);
+			if (amountEvents > poolSize) {
+				System.out.println("Amount of events (" + amountEvents + ") must be smaller or equal than the " + realEvents.size() 
+						+ " events and the simulated events (" + parameters.AMOUNT_SIMULATED_EVENTS + ").");
+				exit();
+			}
+			else if (toleranceMinutes >= 0) {
+				List<Integer> candidates = new ArrayList<>(poolSize);
+				for (int i = 0; i < poolSize; i++) {
+					candidates.add(i);
+				}
+				List<Integer> chosen = Helper.getRandomElements(candidates, amountEvents, random);
+				int[] offsets = getEventOffsets(amountEvents, toleranceMinutes);
 				
-				int delay = minDistanceMinutes;
-				for (int i = 0; i < events.size(); i++) {
-					if (toleranceMinutes > 0) {
-						Event event = events.get(i);
-						int random = Helper.getRandom(0, toleranceMinutes);
-						delay += random;
+				openEventsFile();
+				for (int i = 0; i < amountEvents; i++) {
+					// simulated events are only created if they are chosen
+					int number = chosen.get(i);
+					Event event = number < realEvents.size() ? realEvents.get(number) : createSimulatedEvent(number - realEvents.size());
+					int delay = minDistanceMinutes + offsets[i] - (i == 0 ? 0 : offsets[i - 1]);
+					
+					if (i == 0) {
+						event.setStartDelayInSeconds(delay*60);
+					}
+					else {
+						long preEventStart = events.get(i-1).getEventStart();
+						long eventStart = event.getEventStart();
 						
-						if (i == 0) {
-							event.setStartDelayInSeconds(delay*60);
-						}
-						else {
-							long preEventStart = events.get(i-1).getEventStart();
-							long eventStart = event.getEventStart();
-							
-							int eventDistance = (int)(preEventStart - eventStart);
-							event.setStartDelayInSeconds(eventDistance + (delay*60));
-						}
-						addEventToXmlFile(event, eventsXmlFile, event.getId(), delay, event.getEventStart());
-		
-						toleranceMinutes -= random;
-						delay = minDistanceMinutes;
+						int eventDistance = (int)(preEventStart - eventStart);
+						event.setStartDelayInSeconds(eventDistance + (delay*60));
 					}
+					events.add(event);
+					writeEvent(event, delay);
 				}
-				
-				writeEventXmlFile();
+				closeEventsFile();
 			}
 			else {
 				System.out.println("Amount of events (" + amountEvents + ") with min distance between events (" + minDistanceMinutes + ")"
-						+ " and event duration (" + GlobalParameters.EVENT_DURATION + ")." + System.lineSeparator() 
-						+ "(" + amountEvents + " * " + minDistanceMinutes + ") + " + GlobalParameters.EVENT_DURATION + " = " + minStreamDuration
-						+ " must be greater or equal than overall minutes (" + GlobalParameters.LIMIT_SIZE + ") or the events can not be included.");
-				System.exit(0);
+						+ " and event duration (" + parameters.EVENT_DURATION + ")." + System.lineSeparator() 
+						+ "(" + amountEvents + " * " + minDistanceMinutes + ") + " + parameters.EVENT_DURATION + " = " + minStreamDuration
+						+ " must be greater or equal than overall minutes (" + parameters.LIMIT_SIZE + ") or the events can not be included.");
+				exit();
 			}			
 		}
 	}
 	
-	private Element getEventsXmlFile() {
-		try {			
-			DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-			
-			// root
-			eventsDocument = docBuilder.newDocument();
-			Element root = eventsDocument.createElement("event_output");
-			eventsDocument.appendChild(root);
-			
-			// event option
-			Element eventOption = eventsDocument.createElement("event_option");
-			root.appendChild(eventOption);
-			
-			// minutes before option
-			Element minutesBefore = eventsDocument.createElement("minutes_before_event_start");
-			minutesBefore.appendChild(eventsDocument.createTextNode(String.valueOf(GlobalParameters.MINUTES_BEFORE_EVENT_START)));
-			eventOption.appendChild(minutesBefore);
-			
-			// event duration option
-			Element eventDuration = eventsDocument.createElement("event_duration");
-			eventDuration.appendChild(eventsDocument.createTextNode(String.valueOf(GlobalParameters.EVENT_DURATION)));
-			eventOption.appendChild(eventDuration);
-			
-			// events
-			Element eventsNode = eventsDocument.createElement("events");
-			root.appendChild(eventsNode);
-			
-			return eventsNode;
+	/**
+	 * Minutes the events are placed after their minimal distance, in one pass. These are the sorted values of amount
+	 * uniform random minutes up to toleranceMinutes, generated from the largest to the smallest (Bentley and Saxe), so
+	 * every event gets the same share of the tolerance.
+	 */
+	private int[] getEventOffsets(int amount, int toleranceMinutes) {
+		int[] offsets = new int[amount];
+		double max = 1;
+		for (int i = amount; i > 0; i--) {
+			max *= Math.pow(random.nextDouble(), 1.0 / i);
+			offsets[i - 1] = (int)(max * (toleranceMinutes + 1));
+		}
+		return offsets;
+	}
+	
+	/**
+	 * Simulated event with three terms of random idf curves, the terms are unique for the number of the event.
+	 */
+	private Event createSimulatedEvent(int number) {
+		EventSimulated simulated = new EventSimulated(Event.EventId.SIMULATED, Event.EventId.SIMULATED + "_" + number, parameters);
+		int maxStartingDuration = Math.max(Math.min(5, parameters.EVENT_DURATION - parameters.MINUTES_BEFORE_EVENT_START), 1);
+		for (int k = 0; k < 3; k++) {
+			simulated.addTerm("simulated" + number + "term" + k, random.nextInt(10) + 1, random.nextInt(10) + 1, 
+					random.nextInt(maxStartingDuration) + 1, random.nextInt(10) + 1);
+		}
+		return simulated;
+	}
+	
+	/**
+	 * Opens the events file and writes the event options, the events are written while they are placed.
+	 */
+	private void openEventsFile() {
+		String eventsFile = isShard() ? getShardEventsFile(outputFile) : parameters.OUTPUT_DIR + "/events_" + parameters.SCALE + ".xml";
+		try {
+			eventsWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(eventsFile), StandardCharsets.UTF_8));
+			eventsWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+			eventsWriter.write("<event_output>\n");
+			eventsWriter.write("    <event_option>\n");
+			writeElement(8, "minutes_before_event_start", String.valueOf(parameters.MINUTES_BEFORE_EVENT_START));
+			writeElement(8, "event_duration", String.valueOf(parameters.EVENT_DURATION));
+			eventsWriter.write("    </event_option>\n");
+			eventsWriter.write("    <events>\n");
 		}
-		catch (Exception e) {
+		catch (IOException e) {
 			System.out.println(e.toString());
-			return null;
+			eventsWriter = null;
 		}
 	}
 	
-	private void addEventToXmlFile(Event evento, Element events, Event.EventId id, int eventDelay, long eventStart) {
-		Element event = eventsDocument.createElement("event");
-		events.appendChild(event);
-		event.setAttribute("id", id.toString());
-		
-		// delay
-		Element delay = eventsDocument.createElement("delay_to_pre_event");
-		delay.appendChild(eventsDocument.createTextNode(String.valueOf(eventDelay)));
-		event.appendChild(delay);
-		
-		// start timestamp
-		Element startTimestamp = eventsDocument.createElement("start_epoch");
-		startTimestamp.appendChild(eventsDocument.createTextNode(String.valueOf(eventStart)));
-		event.appendChild(startTimestamp);
-		
-		Element terms = eventsDocument.createElement("terms");
-		terms.appendChild(eventsDocument.createTextNode(String.join(", ", evento.getEventTerms())));
-		event.appendChild(terms);
+	private void writeEvent(Event event, int eventDelay) {
+		if (eventsWriter == null) {
+			return;
+		}
 		
-		// start string
-		Element startString = eventsDocument.createElement("start_string");
-		Date date = new Date();
-		date.setTime(eventStart*1000);
-		startString.appendChild(eventsDocument.createTextNode(date.toString()));
-		event.appendChild(startString);
+		try {
+			eventsWriter.write("        <event id=\"" + escapeXml(event.getName()) + "\">\n");
+			writeElement(12, "delay_to_pre_event", String.valueOf(eventDelay));
+			writeElement(12, "start_epoch", String.valueOf(event.getEventStart()));
+			writeElement(12, "terms", String.join(", ", event.getEventTerms()));
+			
+			Date date = new Date();
+			date.setTime(event.getEventStart()*1000);
+			writeElement(12, "start_string", date.toString());
+			eventsWriter.write("        </event>\n");
+		}
+		catch (IOException e) {
+			System.out.println(e.toString());
+		}
 	}
 	
-	private void writeEventXmlFile() {
+	private void closeEventsFile() {
+		if (eventsWriter == null) {
+			return;
+		}
+		
 		try {
-			// write the content into xml file
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-			
-			DOMSource source = new DOMSource(eventsDocument);
-			StreamResult result = new StreamResult(new File(GlobalParameters.OUTPUT_DIR + "/events_" + GlobalParameters.SCALE + ".xml"));
-			transformer.transform(source, result);
+			eventsWriter.write("    </events>\n");
+			eventsWriter.write("</event_output>\n");
+			eventsWriter.close();
 		}
-		catch (Exception e) {
+		catch (IOException e) {
 			System.out.println(e.toString());
 		}
 	}
 	
-	private void createWindow() {
-    	if (window == 0) {
-    		outputLines.add(GlobalParameters.TWITTER_HEADER);
-    	}
-    	int tweetCount = getTweetCount(amountTermsDistribution);
-    	
-    	if (GlobalParameters.INSERT_COMMENTS) {
-    		outputLines.add("# window " + window + ", tweet count: " + tweetCount);
-    	}
-    	
-		if (tweetCount > 0) {
-			tweets.clear();
+	private void writeElement(int indent, String name, String text) throws IOException {
+		eventsWriter.write(StringUtils.repeat(' ', indent) + "<" + name + ">" + escapeXml(text) + "</" + name + ">\n");
+	}
+	
+	private static String escapeXml(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+	
+	/**
+	 * First minute after the last window, the stream ends with the window which reaches LIMIT_SIZE.
+	 */
+	private int getStreamEnd() {
+		for (int i = 0; i < countAllMinutes; i += parameters.WINDOW_SIZE) {
+			// abort
+			if (parameters.LIMIT_SIZE > -1 && i > 0 && parameters.LIMIT_SIZE / (double)(i + parameters.WINDOW_SIZE) <= 1) {
+				return Math.min(i + parameters.WINDOW_SIZE, countAllMinutes);
+			}
+		}
+		return countAllMinutes;
+	}
+	
+	private boolean isShard() {
+		return parameters.SHARD_START > 0 || parameters.SHARD_END != -1;
+	}
+	
+	private boolean checkShard() {
+		int start = parameters.SHARD_START;
+		int end = parameters.SHARD_END;
+		int alignment = parameters.SPLIT_IN_HOUR_FILES ? 60 : parameters.WINDOW_SIZE;
+		if (parameters.SEED == -1) {
+			System.out.println("A shard needs a SEED, all shards of a stream must use the same SEED.");
+			return false;
+		}
+		if (start < 0 || start % alignment != 0 || (end != -1 && (end <= start || end % alignment != 0))) {
+			System.out.println("Shard " + start + " -> " + end + " must start and end at a multiple of " + alignment + " minutes.");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Advances the state carried over between windows (tweet id, timestamps, idf windows, output files) over the
+	 * windows before the shard. Only the amount of terms in tweets is needed for this, so the term counts are not read.
+	 * @return the index of the first window of the shard
+	 */
+	private int skipWindows(int shardStart) {
+		int windowIndex = 0;
+		TimestampSchedule schedule = new TimestampSchedule();
+		for (int i = 0; i < shardStart; i += parameters.WINDOW_SIZE, windowIndex++) {
+			int windowStart = i;
+			int windowEnd = Math.min(i + parameters.WINDOW_SIZE - 1, countAllMinutes - 1);
+			Window skippedWindow = new Window(windowIndex);
+			skippedWindow.schedule = schedule;
+			skippedWindow.amountTermsCounts = base.countAmountTerms(windowStart, windowEnd).getAmountTermsCounts(parameters.SCALE, maxAmountTerms);
 			
+			scheduleWindow(skippedWindow);
+			window = windowIndex;
+			if (skippedWindow.tweetCount > 0) {
+				writeResult();
+			}
+		}
+		
+		base.endCounting();
+		if (shardStart > 0) {
+			log(1, "skipped " + windowIndex + " windows, first tweet id: " + allTweetCount + ", idf windows: " + allIdfWindows);
+		}
+		return windowIndex;
+	}
+	
+	private Window planWindow(int windowIndex, WindowCounts counts) {
+		long phaseStart = System.nanoTime();
+		Window window = new Window(windowIndex);
+		window.schedule = schedules.isEmpty() ? new TimestampSchedule() : schedules.poll();
+		window.amountTermsCounts = counts.getAmountTermsCounts(parameters.SCALE, maxAmountTerms);
+		
+		// the window only keeps the terms it contains
+		int[] termIds = counts.getTermIds();
+		int[] termCounts = counts.getTermCounts(parameters.SCALE);
+		int size = 0;
+		for (int i = 0; i < termIds.length; i++) {
+			if (termCounts[i] > 0) {
+				size++;
+			}
+		}
+		window.termIds = new int[size];
+		window.termCounts = new int[size];
+		size = 0;
+		for (int i = 0; i < termIds.length; i++) {
+			if (termCounts[i] > 0) {
+				window.termIds[size] = termIds[i];
+				window.termCounts[size++] = termCounts[i];
+			}
+		}
+		
+		scheduleWindow(window);
+		metrics.record(StreamMetrics.Phase.DISTRIBUTION, phaseStart);
+		return window;
+	}
+	
+	/**
+	 * Creates the timestamps of a window from its amount of tweets and advances the tweet id and the idf windows.
+	 */
+	private void scheduleWindow(Window window) {
+		int tweetCount = getTweetCount(window.amountTermsCounts);
+		window.tweetCount = tweetCount;
+		window.firstTweetId = allTweetCount;
+		window.firstIdfWindow = allIdfWindows;
+		
+		if (tweetCount > 0) {
 			// create timestamps for window
-	    	int windowSizeInSeconds = GlobalParameters.WINDOW_SIZE*60;
-	    	double secondPerTweet = (double)windowSizeInSeconds / tweetCount;
-	    	
-	    	Double adaptIncrease = null;
-	    	if (secondPerTweet < 1) {
-	    		// how many tweets should be in one second
-	    		adaptIncrease = 1 / secondPerTweet;
-	    	}
-	    	
-			if (timestamps.size() > 0) {
-				long lastTimestamp = timestamps.get(timestamps.size() - 1);
-				
+			long firstTimestamp = streamStart;
+			if (lastTimestamp != -1) {
 				// replace the last three digits of the timestamp with 000
 				// the last three digits is millisecond precision which is not needed here 
 				// and will led to problems with the actual timestamps in the tweets
 				lastTimestamp = lastTimestamp - (lastTimestamp%1000); 
-				date.setTime(lastTimestamp + 1000);
+				firstTimestamp = lastTimestamp + 1000;
 			}
-	    	long endTimestamp = date.getTime() + windowSizeInSeconds*1000;
-	    	timestamps.clear();
-	    	
-			for (int i = 0; i < tweetCount; i++) {
-				if (adaptIncrease == null) {						
-					Helper.increaseDate(date, Calendar.SECOND, Helper.roundToInteger(secondPerTweet, true));
-				}
-				else {
-					int integerIncrease = Helper.roundToInteger(adaptIncrease, false);
-					if (i > 0 && i%integerIncrease == 0) {
-						Helper.increaseDate(date, Calendar.SECOND, 1);
-					}
-				}
-				
-				long currentTimestamp = date.getTime();
-				if (currentTimestamp >= endTimestamp) {
-					date.setTime(endTimestamp - 1000);
-				}
-				
-				timestamps.add(date.getTime());
-			}			
+			window.schedule.create(firstTimestamp, tweetCount, parameters.WINDOW_SIZE*60, parameters.IDF_WINDOW);
+			lastTimestamp = window.schedule.getLast();
 			
-			System.out.println("window " + window + ", tweets to create: " + tweetCount);
+			allTweetCount += tweetCount;
+			allIdfWindows += window.schedule.getIdfWindowCount();
+		}
+	}
+	
+	/**
+	 * Seed of the shuffle of a window, only depends on the seed of the stream and the window index.
+	 */
+	private long getWindowSeed(int windowIndex) {
+		return new SplittableRandom(seed + windowIndex).nextLong();
+	}
+	
+	/**
+	 * Assigns the terms to the tweets of the window and shuffles them.
+	 */
+	private Window prepareWindow(Window window) {
+		int tweetCount = window.tweetCount;
+		if (tweetCount > 0) {
+			log(2, "window " + window.index + ", tweets to create: " + tweetCount);
+			
+			// terms sorted by count
+			long phaseStart = System.nanoTime();
+			TermAssignment termAssignment = new TermAssignment(window.termIds, window.termCounts, window.termIds.length);
 			
-	    	for (Entry<Integer, Integer> amountTermsEntry : amountTermsDistribution.entrySet()) {
-	    		int termAmount = amountTermsEntry.getKey();
-	    		int absoluteCountInTweets = amountTermsEntry.getValue();
+			TweetTerms tweetTerms = new TweetTerms();
+			int[] terms = new int[window.amountTermsCounts.length];
+	    	// tweets with the most terms first
+	    	for (int termAmount = window.amountTermsCounts.length - 1; termAmount >= 0; termAmount--) {
+	    		int absoluteCountInTweets = window.amountTermsCounts[termAmount];
 	    		
 	    		for (int i = 0; i < absoluteCountInTweets; i++) {
-	    			List<String> terms = new ArrayList<>();
-	    			Iterator<Entry<String, Integer>> termIterator = termDistribution.entrySet().iterator();
-	    			
-	    			for (int j = 0; j < termAmount; j++) {
-						if (termIterator.hasNext()) {
-							Entry<String, Integer> entryTerm = termIterator.next();
-							String term = entryTerm.getKey();
-							int count = entryTerm.getValue();
-							terms.add(term);
-							
-							if (count == 1) {
-								termIterator.remove();
-							}
-							else {
-								termDistribution.put(term, count - 1);
-							}
-						}
-	    			}
-				
-					tweets.add(StringUtils.join(terms, " "));
+	    			tweetTerms.add(terms, termAssignment.nextTweet(termAmount, terms, 0));
 	    		}
-	    	}	
-	
-			Collections.shuffle(tweets);
-			insertEvents();
-			writeResult();
+	    	}
+	    	window.tweetTerms = tweetTerms;
+	    	metrics.record(StreamMetrics.Phase.TERM_ASSIGNMENT, phaseStart);
+	    	
+	    	phaseStart = System.nanoTime();
+	    	window.order = shuffle(tweetCount, new Random(getWindowSeed(window.index)));
+	    	metrics.record(StreamMetrics.Phase.SHUFFLE, phaseStart);
+	    	
+	    	phaseStart = System.nanoTime();
+	    	window.idfWindowTerms = planIdfWindows(window);
+	    	metrics.record(StreamMetrics.Phase.INJECTION, phaseStart);
+	    	
+			// only the terms of the tweets are needed from here on
+			window.termIds = null;
+			window.termCounts = null;
+			window.amountTermsCounts = null;
 		}
+		return window;
 	}
 	
-	private void insertEvents() {
-		// how many tweets in 1 idf window
-		Map<Integer, Integer> tweetAmountPerIdfWindow = new HashMap<>();
-		int tweetCount = 0;
-		int idfWindowCount = 0;
-		long startTimestamp = timestamps.get(0) / 1000;
-		for (int i = 0; i < timestamps.size(); i++) {
-			long timestamp = timestamps.get(i) / 1000;
-			long duration = (timestamp - startTimestamp);
-			if (duration < GlobalParameters.IDF_WINDOW) {
-				tweetCount++;
-			}
-			else {
-				tweetAmountPerIdfWindow.put(idfWindowCount++, tweetCount);
-				tweetCount = 1;
-    			startTimestamp = timestamp;
+	/**
+	 * Splits the window in chunks of CHUNK_SIZE tweets, a window without tweets has one empty chunk.
+	 */
+	private List<Chunk> getChunks(Window window) {
+		List<Chunk> chunks = new ArrayList<>();
+		int chunkSize = parameters.CHUNK_SIZE > 0 ? parameters.CHUNK_SIZE : Integer.MAX_VALUE;
+		int start = 0;
+		do {
+			int end = (int)Math.min(window.tweetCount, (long)start + chunkSize);
+			chunks.add(new Chunk(window, start, end));
+			start = end;
+		} while (start < window.tweetCount);
+		return chunks;
+	}
+	
+	private Chunk createChunk(Chunk chunk) {
+		Window window = chunk.window;
+		// chunks are created concurrently, poll() is the only check of the queue
+		TweetEncoder output = encoders.poll();
+		if (output == null) {
+			output = new TweetEncoder();
+		}
+		chunk.output = output;
+		
+		if (chunk.start == 0) {
+	    	if (window.index == 0 && !binaryOutput) {
+	    		output.appendLine(parameters.TWITTER_HEADER);
+	    	}
+	    	if (parameters.INSERT_COMMENTS && !binaryOutput) {
+	    		output.appendLine("# window " + window.index + ", tweet count: " + window.tweetCount);
+	    	}
+		}
+    	
+		if (chunk.end > chunk.start) {
+	    	if (consumer != null) {
+	    		chunk.contents = new String[chunk.end - chunk.start];
+	    	}
+	    	long phaseStart = System.nanoTime();
+			insertEvents(chunk);
+			if (binaryOutput) {
+				BinaryTweetFormat.compressBlock(output, chunk.end - chunk.start);
 			}
+			metrics.record(StreamMetrics.Phase.INJECTION, phaseStart);
+		}
+		return chunk;
+	}
+	
+	/**
+	 * Random order of the tweets 0..size-1, the same order Collections.shuffle creates for a list of the tweets.
+	 */
+	private int[] shuffle(int size, Random random) {
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		for (int i = size; i > 1; i--) {
+			int j = random.nextInt(i);
+			int swap = order[i - 1];
+			order[i - 1] = order[j];
+			order[j] = swap;
 		}
-		tweetAmountPerIdfWindow.put(idfWindowCount, tweetCount);
+		return order;
+	}
+	
+	/**
+	 * Visits the idf windows of the window once and keeps the event terms of each of them, so every chunk only visits
+	 * the idf windows it overlaps.
+	 */
+	private IdfWindowTerms[] planIdfWindows(Window window) {
+		TimestampSchedule schedule = window.schedule;
+		Map<String, Integer> amountTermsFraction = new HashMap<>();
+		EventIndex.Cursor activeEvents = eventIndex.cursor(window.firstIdfWindow);
+		boolean comments = parameters.INSERT_COMMENTS && !binaryOutput;
 		
-		int tweetAmountInIdfWindow = tweetAmountPerIdfWindow.get(0);
-		Map<String, Integer> amountTermsFraction = new HashMap<>();  
+		IdfWindowTerms[] idfWindowTerms = new IdfWindowTerms[schedule.getIdfWindowCount()];
+		for (int idfWindowCount = 0; idfWindowCount < schedule.getIdfWindowCount() && schedule.getIdfWindowStart(idfWindowCount) < window.tweetCount; idfWindowCount++) {
+			List<String> idfWindowComments = comments ? new ArrayList<>() : null;
+			initIdfWindow(idfWindowComments, amountTermsFraction, activeEvents, schedule.getIdfWindowTweetCount(idfWindowCount), 
+					idfWindowCount, window.firstIdfWindow + idfWindowCount);
+			// the copy keeps the iteration order of the fractions at this idf window
+			idfWindowTerms[idfWindowCount] = new IdfWindowTerms(new LinkedHashMap<>(amountTermsFraction), idfWindowComments);
+		}
+		return idfWindowTerms;
+	}
+	
+	private void insertEvents(Chunk chunk) {
+		Window window = chunk.window;
+		TimestampSchedule schedule = window.schedule;
+		InjectionSchedule injections = new InjectionSchedule(eventTermIndexes);
 		
-		idfWindowCount = 0;
-		startTimestamp = timestamps.get(0);
-		Date date = new Date(); 
-		for (int i = 0; i < tweets.size(); i++) {
-			String tweet = tweets.get(i);
-			long timestamp = timestamps.get(i);
-			
-			date.setTime(timestamp);
-			long duration = ((timestamp / 1000) - (startTimestamp / 1000));
-			if (duration < GlobalParameters.IDF_WINDOW) {
-				if (i == 0) { // first tweet which introduces the new window
-					initIdfWindow(amountTermsFraction, tweetAmountInIdfWindow, idfWindowCount);
-        			idfWindowCount++;
-					allIdfWindows++;
+		for (int idfWindowCount = 0; idfWindowCount < schedule.getIdfWindowCount() && schedule.getIdfWindowStart(idfWindowCount) < chunk.end; idfWindowCount++) {
+			IdfWindowTerms idfWindowTerms = window.idfWindowTerms[idfWindowCount];
+			// the comments of an idf window belong to the chunk it starts in
+			if (idfWindowTerms.comments != null && schedule.getIdfWindowStart(idfWindowCount) >= chunk.start) {
+				for (String comment : idfWindowTerms.comments) {
+					chunk.output.appendLine(comment);
 				}
-				
-				tweet = addTermsToTweet(amountTermsFraction, i, tweet);
-				outputLines.add(String.format("%018d", allTweetCount++) + "\t" + date + "\t" + tweet);
 			}
-			else {
-				tweetAmountInIdfWindow = tweetAmountPerIdfWindow.get(idfWindowCount);
-				
-				initIdfWindow(amountTermsFraction, tweetAmountInIdfWindow, idfWindowCount);					
-    			idfWindowCount++;
-    			allIdfWindows++;
-    			
-				tweet = addTermsToTweet(amountTermsFraction, i, tweet);
-				outputLines.add(String.format("%018d", allTweetCount++) + "\t" + date + "\t" + tweet);
-    			startTimestamp = timestamps.get(i);
+			
+			int start = Math.max(schedule.getIdfWindowStart(idfWindowCount), chunk.start);
+			int end = Math.min(schedule.getIdfWindowStart(idfWindowCount + 1), chunk.end);
+			if (start >= end) {
+				continue;
+			}
+			injections.plan(idfWindowTerms.amountTermsFraction, start, end);
+			for (int i = start; i < end; i++) {
+				if (binaryOutput) {
+					writeBinaryTweet(chunk.output, window, window.firstTweetId + i, schedule.get(i), window.order[i], injections, i);
+					continue;
+				}
+				int contentStart = writeTweet(chunk.output, window, window.firstTweetId + i, schedule.get(i), window.order[i]);
+				addTermsToTweet(chunk.output, injections, i);
+				if (chunk.contents != null) {
+					chunk.contents[i - chunk.start] = chunk.output.decode(contentStart);
+				}
+				chunk.output.endLine();
 			}
 		}		
 	}
 	
-	private void initIdfWindow(Map<String, Integer> amountTermsFraction, int tweetAmountInMinuteWindow, int idfWindowCount) {
+	/**
+	 * Writes id, creation date and the terms of the tweet, the line is not ended to allow event terms to be added.
+	 * @return the position of the content in the output
+	 */
+	private int writeTweet(TweetEncoder output, Window window, long tweetId, long timestamp, int tweet) {
+		output.appendTweetId(tweetId);
+		output.append('\t');
+		output.appendDate(timestamp);
+		output.append('\t');
+		int contentStart = output.length();
+		int run = window.tweetTerms.getRun(tweet);
+		for (int k = window.tweetTerms.getStart(run); k < window.tweetTerms.getEnd(run); k++) {
+			if (k > window.tweetTerms.getStart(run)) {
+				output.append(' ');
+			}
+			output.append(termBytes[window.tweetTerms.getTerm(k)]);
+		}
+		return contentStart;
+	}
+	
+	/**
+	 * Writes a tweet of the binary output with the same terms writeTweet and addTermsToTweet write.
+	 */
+	private void writeBinaryTweet(TweetEncoder output, Window window, long tweetId, long timestamp, int tweet, InjectionSchedule injections, int i) {
+		int run = window.tweetTerms.getRun(tweet);
+		int termsStart = window.tweetTerms.getStart(run);
+		int termsEnd = window.tweetTerms.getEnd(run);
+		
+		int eventTermCount = injections.count(i);
+		boolean emptyStart = termsStart == termsEnd && eventTermCount > 0;
+		
+		output.appendVarLong(tweetId);
+		output.appendVarLong(timestamp / 1000);
+		output.appendVarLong(termsEnd - termsStart + eventTermCount + (emptyStart ? 1 : 0));
+		if (emptyStart) {
+			output.appendVarLong(emptyTermId);
+		}
+		for (int k = termsStart; k < termsEnd; k++) {
+			output.appendVarLong(window.tweetTerms.getTerm(k));
+		}
+		for (int k = 0; k < eventTermCount; k++) {
+			output.appendVarLong(eventTermIds[injections.next()]);
+		}
+	}
+	
+	/**
+	 * Sets the fractions of the event terms for the idf window and adds its comments to commentLines unless it is null.
+	 * Only the active events are visited, the terms of an event are removed when their values are over.
+	 */
+	private void initIdfWindow(List<String> commentLines, Map<String, Integer> amountTermsFraction, EventIndex.Cursor activeEvents, 
+			int tweetAmountInMinuteWindow, int idfWindowCount, int allIdfWindows) {
+		boolean comments = commentLines != null;
 		List<String> eventsOutput = new ArrayList<>();
-		for (Event eventInput : events) {
-			if (eventInput.getStartDelay() <= allIdfWindows) {
-				// used for logging
-				List<String> termsWithCount = new ArrayList<>();
+		BitSet active = activeEvents.advance(allIdfWindows);
+		for (int eventIndexInStream = active.nextSetBit(0); eventIndexInStream >= 0; eventIndexInStream = active.nextSetBit(eventIndexInStream + 1)) {
+			Event eventInput = events.get(eventIndexInStream);
+			int second = allIdfWindows - eventInput.getStartDelay();
+			if (second >= eventIndex.getLength(eventIndexInStream)) {
+				amountTermsFraction.keySet().removeAll(eventInput.getTermIdfs().keySet());
+				active.clear(eventIndexInStream);
+				continue;
+			}
+			
+			// used for logging
+			List<String> termsWithCount = new ArrayList<>();
+			
+			for (Entry<String, Event.IdfSeries> entry : eventInput.getTermIdfs().entrySet()) {
+				Event.IdfSeries idfs = entry.getValue();
+				String term = entry.getKey();
 				
-				for (Entry<String, List<Event.EventInputEntry>> entry : eventInput.getTermEventInputEntries().entrySet()) {
-					List<Event.EventInputEntry> eventEntries = entry.getValue();
-					
-					if ((allIdfWindows - eventInput.getStartDelay()) <= eventEntries.size() - 1) {
-						String term = entry.getKey();
-						Double idf = entry.getValue().get(allIdfWindows - eventInput.getStartDelay()).getIdf();
-						
-						if (idf != null) {
-							int amountTerm = getTermAmountInWindow(tweetAmountInMinuteWindow, idf);
-							amountTermsFraction.put(term, (int)Math.ceil((double)tweetAmountInMinuteWindow / amountTerm));
+				if (second <= idfs.size() - 1) {
+					if (idfs.hasIdf(second)) {
+						double idf = idfs.getIdf(second);
+						int amountTerm = getTermAmountInWindow(tweetAmountInMinuteWindow, idf, idfs.getIdfFactor(second));
+						amountTermsFraction.put(term, (int)Math.ceil((double)tweetAmountInMinuteWindow / amountTerm));
+						if (comments) {
 							termsWithCount.add(term + " -> " + amountTerm + " -> idf to reach: " + idf + ", idf reached: " + Math.log((double)tweetAmountInMinuteWindow / amountTerm));
 						}
-						else {
+					}
+					else {
+						if (comments) {
 							termsWithCount.add(term + " -> 0");
-							amountTermsFraction.remove(term);
 						}
+						amountTermsFraction.remove(term);
 					}
 				}
-				
-				if (termsWithCount.size() > 0) {
-					for (String termWithCount : termsWithCount) {
-						eventsOutput.add("# " + eventInput.getId() + ": " + termWithCount);
-					}
+				else {
+					amountTermsFraction.remove(term);
+				}
+			}
+			
+			if (termsWithCount.size() > 0) {
+				for (String termWithCount : termsWithCount) {
+					eventsOutput.add("# " + eventInput.getName() + ": " + termWithCount);
 				}
 			}
 		}
 		
-		if (GlobalParameters.INSERT_COMMENTS) {
-			outputLines.add("# start " + GlobalParameters.IDF_WINDOW + " seconds idf window " + idfWindowCount + " (" + allIdfWindows 
+		if (comments) {
+			commentLines.add("# start " + parameters.IDF_WINDOW + " seconds idf window " + idfWindowCount + " (" + allIdfWindows 
 					+ "), amount tweets: " + tweetAmountInMinuteWindow);
-		
-			for (String eventOut : eventsOutput) {
-				outputLines.add(eventOut);
-			}
+			commentLines.addAll(eventsOutput);
 		}
 	}	
 	
-	private int getTermAmountInWindow(int tweetAmountInMinuteWindow, double idf) {
-		int ceil = (int)Math.ceil(tweetAmountInMinuteWindow / Math.pow(Math.E, idf));
-		int floor = (int)Math.floor(tweetAmountInMinuteWindow / Math.pow(Math.E, idf));
+	private int getTermAmountInWindow(int tweetAmountInMinuteWindow, double idf, double idfFactor) {
+		int ceil = (int)Math.ceil(tweetAmountInMinuteWindow / idfFactor);
+		int floor = (int)Math.floor(tweetAmountInMinuteWindow / idfFactor);
 		
 		if (floor > 0) {
 			double absCeil = Math.abs(Math.log((double)tweetAmountInMinuteWindow / ceil) - idf);
@@ -800,48 +1083,93 @@ public class Stream {
 		return ceil;
 	}
 
-	private String addTermsToTweet(Map<String, Integer> amountTermsFraction, int i, String tweet) {
-		for (Entry<String, Integer> entry : amountTermsFraction.entrySet()) {
-			int tweetAmountInWindowFraction = entry.getValue();
-			String term = entry.getKey();
-			
-			if (i%tweetAmountInWindowFraction == 0) {
-				tweet += " " + term;
+	private void addTermsToTweet(TweetEncoder output, InjectionSchedule injections, int i) {
+		for (int k = injections.count(i); k > 0; k--) {
+			output.append(' ');
+			output.append(eventTermBytes[injections.next()]);
+		}
+	}
+	
+	private void writeChunk(Future<Chunk> createdChunk) {
+		try {
+			writeChunk(createdChunk.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			// a missing chunk would leave a gap in the stream, the run fails
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Writes the output lines of the chunks in window order.
+	 */
+	private void writeChunk(Chunk chunk) {
+		long phaseStart = System.nanoTime();
+		Window createdWindow = chunk.window;
+		window = createdWindow.index;
+		metrics.addTweets(chunk.end - chunk.start, chunk.output.length());
+		try {
+			if (consumer != null) {
+				for (int i = chunk.start; i < chunk.end; i++) {
+					consumer.tweet(createdWindow.firstTweetId + i, createdWindow.schedule.get(i), chunk.contents[i - chunk.start]);
+				}
+				chunk.contents = null;
+			}
+			else if (chunk.output.length() > 0) {
+				if (!writer.isOpen()) {
+					openOutputFile();
+				}
+				chunk.output.writeTo(writer);
 			}
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+		chunk.output.reset();
+		encoders.add(chunk.output);
+		
+		if (chunk.isLast()) {
+			schedules.add(createdWindow.schedule);
+			if (createdWindow.tweetCount > 0) {
+				writeResult();
+			}
+			metrics.addWindow();
+		}
+		metrics.record(StreamMetrics.Phase.WRITE, phaseStart);
+	}
+	
+	private void openOutputFile() throws IOException {
+		if (parameters.SPLIT_IN_HOUR_FILES) {
+			writer.open(parameters.OUTPUT_DIR + "/" + getOutputFileDateSplitHour(outputFileCount));
+		}
+		else {
+			writer.open(outputFile);
+		}
+		if (binaryOutput) {
+			writer.write(binaryHeader, 0, binaryHeader.length);
 		}
-		return tweet;
 	}
 	
 	private void writeResult() {
 		try {
-			if (GlobalParameters.SPLIT_IN_HOUR_FILES) {
+			if (parameters.SPLIT_IN_HOUR_FILES) {
 				// last file will not be written if 60 is not straight divisible by WINDOW_SIZE, so this workaround
-				int lastWindow = Helper.roundToInteger(((double)GlobalParameters.LIMIT_SIZE / GlobalParameters.WINDOW_SIZE), true) - 1;
-				if (((window + 1) * GlobalParameters.WINDOW_SIZE) % 60 == 0 || window == lastWindow) {
-					String fileName = GlobalParameters.OUTPUT_DIR + "/" + getOutputFileDateSplitHour(outputFileCount++);
-					Files.write(Paths.get(fileName), outputLines, Charset.forName("UTF-8"));
-					
-					outputLines.clear();
-					// outputLines.add(GlobalParameters.TWITTER_HEADER);
-				}
-			} else {
-				File file = new File(outputFile);
-				if (file.exists()) {
-					Files.write(Paths.get(outputFile), outputLines, Charset.forName("UTF-8"),
-							StandardOpenOption.APPEND);
-				} else {
-					Files.write(Paths.get(outputFile), outputLines, Charset.forName("UTF-8"));
+				int lastWindow = Helper.roundToInteger(((double)parameters.LIMIT_SIZE / parameters.WINDOW_SIZE), true) - 1;
+				if (((window + 1) * parameters.WINDOW_SIZE) % 60 == 0 || window == lastWindow) {
+					// the following lines belong to the file of the next hour
+					outputFileCount++;
+					writer.closeFile();
 				}
-				outputLines.clear();
 			}
 		} catch (Exception e) {
 			System.out.println(e);
 		}
 	}
 	
-	private int getTweetCount(Map<Integer, Integer> map) {
+	private int getTweetCount(int[] counts) {
 		int sum = 0;
-		for (Integer value : map.values()) {
+		for (int value : counts) {
 			sum += value;
 		}
 		return sum;
@@ -0,0 +1,103 @@
+/*
+ * @(#)StreamMerger.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Joins the shards of a simulated stream (see GlobalParameters.SHARD_START) into one stream.
+ *
+ * The shards are concatenated in the given order, so they have to be given in the order of their minutes and must
+ * cover the stream without gaps. Every shard writes the events of the whole stream, these are compared to make sure
+ * all shards were created with the same seed and parameters and are written once. The result is the same as the
+ * stream and events file of a single process.
+ *
+ * With SPLIT_IN_HOUR_FILES the shards already write the hour files of the stream, only the events are joined then.
+ *
+ * @version 1.0
+ */
+public class StreamMerger {
+
+	/**
+	 * Usage: StreamMerger outputFile shardFile...
+	 * The events are written to OUTPUT_DIR/events_SCALE.xml like in a single process.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("usage: StreamMerger outputFile shardFile...");
+			return;
+		}
+		try {
+			merge(args[0], GlobalParameters.OUTPUT_DIR + "/events_" + GlobalParameters.SCALE + ".xml",
+					Arrays.asList(args).subList(1, args.length));
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * @param outputFile file for the joined stream, null if the shards are hour files
+	 * @param eventsFile file for the events of the stream
+	 * @param shardFiles output files of the shards in the order of their minutes
+	 * @throws IOException if a shard can not be read or the shards belong to different streams
+	 */
+	public static void merge(String outputFile, String eventsFile, List<String> shardFiles) throws IOException {
+		mergeEvents(eventsFile, shardFiles);
+		if (outputFile == null) {
+			return;
+		}
+
+		try (FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			boolean first = true;
+			for (String shardFile : shardFiles) {
+				// every binary shard starts with the header, only the one of the first shard is kept
+				long position = 0;
+				if (!first && BinaryTweetFormat.isBinary(shardFile)) {
+					try (BinaryTweetFormat.Reader reader = new BinaryTweetFormat.Reader(shardFile)) {
+						position = reader.getHeaderLength();
+					}
+				}
+				first = false;
+				try (FileChannel shard = FileChannel.open(Paths.get(shardFile), StandardOpenOption.READ)) {
+					long size = shard.size();
+					while (position < size) {
+						position += shard.transferTo(position, size - position, output);
+					}
+				}
+				System.out.println("merged shard: " + shardFile);
+			}
+		}
+	}
+
+	private static void mergeEvents(String eventsFile, List<String> shardFiles) throws IOException {
+		byte[] events = null;
+		for (String shardFile : shardFiles) {
+			Path shardEvents = Paths.get(Stream.getShardEventsFile(shardFile));
+			if (!Files.exists(shardEvents)) {
+				// events are only written with AUTOMATIC_EVENT_INJECTION
+				continue;
+			}
+
+			byte[] current = Files.readAllBytes(shardEvents);
+			if (events == null) {
+				events = current;
+			}
+			else if (!Arrays.equals(events, current)) {
+				throw new IOException("the events of " + shardFile + " differ from the other shards, all shards need the same SEED and parameters");
+			}
+		}
+
+		if (events != null) {
+			Files.write(Paths.get(eventsFile), events);
+		}
+	}
+}
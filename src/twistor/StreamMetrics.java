@@ -0,0 +1,214 @@
+/*
+ * @(#)StreamMetrics.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the creation of a stream: time of every phase, tweets, bytes written, resident file inputs and heap.
+ *
+ * The phases are summed over all threads, with PARALLEL_GENERATION they can add up to more than the elapsed time.
+ * Decoding (loading the file inputs) and the summing of the counts are done by the base input, a MultiScaleStream
+ * shows them in the metrics of every scale. The metrics are registered as MBean twistor:type=Stream,scale=SCALE,id=N
+ * (N counts the streams of the JVM) while the stream is created and written every METRICS_INTERVAL seconds to
+ * METRICS_DIR/metrics_SCALE.csv.
+ *
+ * @version 1.0
+ */
+public class StreamMetrics implements StreamMetricsMBean {
+	private static final AtomicInteger instances = new AtomicInteger();
+	private static final String HEADER = "seconds,windows,tweets,tweets_per_second,bytes_written,decode_ms,distribution_ms,"
+			+ "term_assignment_ms,shuffle_ms,injection_ms,write_ms,resident_file_inputs,resident_file_input_mb,heap_used_mb";
+
+	public enum Phase {
+		DISTRIBUTION, TERM_ASSIGNMENT, SHUFFLE, INJECTION, WRITE
+	}
+
+	private StreamParameters parameters;
+	private BaseInput base;
+	private LongAdder[] phaseTimes = new LongAdder[Phase.values().length]; // in nanoseconds
+	private LongAdder tweets = new LongAdder();
+	private LongAdder bytesWritten = new LongAdder();
+	private volatile int windows = 0;
+	private long startTime = System.nanoTime();
+
+	private ObjectName name;
+	private ScheduledExecutorService logger;
+	private PrintWriter log;
+	private long lastLogTime = startTime;
+	private long lastLogTweets = 0;
+
+	StreamMetrics(StreamParameters parameters, BaseInput base) {
+		this.parameters = parameters;
+		this.base = base;
+		for (int i = 0; i < phaseTimes.length; i++) {
+			phaseTimes[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Registers the MBean and starts the log of METRICS_DIR.
+	 */
+	void start() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			name = new ObjectName("twistor:type=Stream,scale=" + parameters.SCALE + ",id=" + instances.incrementAndGet());
+			server.registerMBean(this, name);
+		} catch (JMException e) {
+			System.out.println(e.getMessage());
+			name = null;
+		}
+
+		if (parameters.METRICS_DIR != null) {
+			String file = parameters.METRICS_DIR + "/metrics_" + parameters.SCALE
+					+ (parameters.SHARD_START > 0 || parameters.SHARD_END != -1 ? "_" + parameters.SHARD_START : "") + ".csv";
+			try {
+				log = new PrintWriter(new FileWriter(file));
+				log.println(HEADER);
+				log.flush();
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+				return;
+			}
+			logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "twistor-metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+			logger.scheduleAtFixedRate(this::writeLog, parameters.METRICS_INTERVAL, parameters.METRICS_INTERVAL, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Adds the time since phaseStart (from System.nanoTime) to the phase.
+	 */
+	void record(Phase phase, long phaseStart) {
+		phaseTimes[phase.ordinal()].add(System.nanoTime() - phaseStart);
+	}
+
+	void addTweets(int count, long bytes) {
+		tweets.add(count);
+		bytesWritten.add(bytes);
+	}
+
+	void addWindow() {
+		windows++;
+	}
+
+	/**
+	 * Writes the last line of the log and unregisters the MBean.
+	 */
+	void end() {
+		if (logger != null) {
+			logger.shutdownNow();
+			writeLog();
+			log.close();
+		}
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException e) {
+				System.out.println(e.getMessage());
+			}
+		}
+	}
+
+	private synchronized void writeLog() {
+		long now = System.nanoTime();
+		long tweetCount = tweets.sum();
+		double seconds = (now - lastLogTime) / 1e9;
+		log.println(String.format(Locale.ROOT, "%.1f,%d,%d,%.0f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d", (now - startTime) / 1e9, windows,
+				tweetCount, seconds > 0 ? (tweetCount - lastLogTweets) / seconds : 0, getBytesWritten(), getDecodeMillis(),
+				getDistributionMillis(), getTermAssignmentMillis(), getShuffleMillis(), getInjectionMillis(), getWriteMillis(),
+				getResidentFileInputs(), getResidentFileInputBytes() >> 20, getHeapUsedBytes() >> 20));
+		log.flush();
+		lastLogTime = now;
+		lastLogTweets = tweetCount;
+	}
+
+	/**
+	 * One line with the throughput and the time of every phase.
+	 */
+	public String getSummary() {
+		return String.format(Locale.ROOT, "%d tweets in %.1f s (%.0f tweets/s, %d MB written), decode: %d ms, distribution: %d ms, "
+				+ "term assignment: %d ms, shuffle: %d ms, injection: %d ms, write: %d ms", getTweets(), (System.nanoTime() - startTime) / 1e9,
+				getTweetsPerSecond(), getBytesWritten() >> 20, getDecodeMillis(), getDistributionMillis(), getTermAssignmentMillis(),
+				getShuffleMillis(), getInjectionMillis(), getWriteMillis());
+	}
+
+	private long getMillis(Phase phase) {
+		return TimeUnit.NANOSECONDS.toMillis(phaseTimes[phase.ordinal()].sum());
+	}
+
+	public int getScale() {
+		return parameters.SCALE;
+	}
+
+	public int getWindows() {
+		return windows;
+	}
+
+	public long getTweets() {
+		return tweets.sum();
+	}
+
+	public double getTweetsPerSecond() {
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return seconds > 0 ? getTweets() / seconds : 0;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	public long getDecodeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(base.getFileLoadTime());
+	}
+
+	public long getDistributionMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(base.getCountTime()) + getMillis(Phase.DISTRIBUTION);
+	}
+
+	public long getTermAssignmentMillis() {
+		return getMillis(Phase.TERM_ASSIGNMENT);
+	}
+
+	public long getShuffleMillis() {
+		return getMillis(Phase.SHUFFLE);
+	}
+
+	public long getInjectionMillis() {
+		return getMillis(Phase.INJECTION);
+	}
+
+	public long getWriteMillis() {
+		return getMillis(Phase.WRITE);
+	}
+
+	public int getResidentFileInputs() {
+		return base.getResidentFileInputs();
+	}
+
+	public long getResidentFileInputBytes() {
+		return base.getResidentFileInputBytes();
+	}
+
+	public long getHeapUsedBytes() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * @(#)StreamMetricsMBean.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+/**
+ * Management interface of the metrics of a stream, registered as twistor:type=Stream (see StreamMetrics).
+ *
+ * @version 1.0
+ */
+public interface StreamMetricsMBean {
+	int getScale();
+
+	int getWindows();
+
+	long getTweets();
+
+	/**
+	 * Tweets per second since the start of the stream.
+	 */
+	double getTweetsPerSecond();
+
+	long getBytesWritten();
+
+	long getDecodeMillis();
+
+	long getDistributionMillis();
+
+	long getTermAssignmentMillis();
+
+	long getShuffleMillis();
+
+	long getInjectionMillis();
+
+	long getWriteMillis();
+
+	int getResidentFileInputs();
+
+	long getResidentFileInputBytes();
+
+	long getHeapUsedBytes();
+}
@@ -0,0 +1,63 @@
+/*
+ * @(#)StreamParameters.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+/**
+ * Parameters of one simulated stream, the fields have the meaning of the same fields in GlobalParameters.
+ *
+ * A new instance takes the current values of GlobalParameters, which remain the defaults of all streams. A stream
+ * and its events only read their own instance, so streams with different parameters (e.g. the scales of a
+ * MultiScaleStream) can be created at the same time in one JVM.
+ *
+ * @version 1.0
+ */
+public class StreamParameters implements Cloneable {
+	// input
+	public String DATE_START = GlobalParameters.DATE_START;
+	public int WINDOW_SIZE = GlobalParameters.WINDOW_SIZE;
+	public int LIMIT_SIZE = GlobalParameters.LIMIT_SIZE;
+	public int SCALE = GlobalParameters.SCALE;
+	public long SEED = GlobalParameters.SEED;
+	public boolean PARALLEL_GENERATION = GlobalParameters.PARALLEL_GENERATION;
+	public int SHARD_START = GlobalParameters.SHARD_START;
+	public int SHARD_END = GlobalParameters.SHARD_END;
+	public String TWISTOR_BASE = GlobalParameters.TWISTOR_BASE;
+	public String TWISTOR_BASE_BINARY = GlobalParameters.TWISTOR_BASE_BINARY;
+	public int PREFETCH_MEMORY = GlobalParameters.PREFETCH_MEMORY;
+	public int CHUNK_SIZE = GlobalParameters.CHUNK_SIZE;
+
+	// output
+	public String TWITTER_HEADER = GlobalParameters.TWITTER_HEADER;
+	public boolean SPLIT_IN_HOUR_FILES = GlobalParameters.SPLIT_IN_HOUR_FILES;
+	public boolean INSERT_COMMENTS = GlobalParameters.INSERT_COMMENTS;
+	public boolean BINARY_OUTPUT = GlobalParameters.BINARY_OUTPUT;
+	public String OUTPUT_DIR = GlobalParameters.OUTPUT_DIR;
+	public int VERBOSITY = GlobalParameters.VERBOSITY;
+	public String METRICS_DIR = GlobalParameters.METRICS_DIR;
+	public int METRICS_INTERVAL = GlobalParameters.METRICS_INTERVAL;
+
+	// event injection
+	public int IDF_WINDOW = GlobalParameters.IDF_WINDOW;
+	public boolean TRIM_EVENT = GlobalParameters.TRIM_EVENT;
+	public int MINUTES_BEFORE_EVENT_START = GlobalParameters.MINUTES_BEFORE_EVENT_START;
+	public int EVENT_DURATION = GlobalParameters.EVENT_DURATION;
+	public boolean AUTOMATIC_EVENT_INJECTION = GlobalParameters.AUTOMATIC_EVENT_INJECTION;
+	public int AMOUNT_EVENTS = GlobalParameters.AMOUNT_EVENTS;
+	public int AMOUNT_SIMULATED_EVENTS = GlobalParameters.AMOUNT_SIMULATED_EVENTS;
+	public int MIN_DISTANCE_BETWEEN_EVENTS = GlobalParameters.MIN_DISTANCE_BETWEEN_EVENTS;
+	public String EVENT_DIR = GlobalParameters.EVENT_DIR;
+
+	/**
+	 * Copy with another scale, all other parameters are the same.
+	 */
+	public StreamParameters withScale(int scale) {
+		try {
+			StreamParameters parameters = (StreamParameters)clone();
+			parameters.SCALE = scale;
+			return parameters;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * @(#)StreamReplay.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a simulated stream in wall-clock time over a local socket or a named pipe (see REPLAY in GlobalParameters).
+ *
+ * The lines are the same as in the stream file. A tweet is sent when the time since the first tweet, divided by the
+ * speed-up, has passed since the first tweet was sent. With a fixed rate tweet n is sent n / rate seconds after the
+ * first one, independent of the creation dates. Without pacing the tweets are sent as fast as the receiver reads.
+ * Tweets which are late are sent immediately, the largest delay is reported with the achieved and the target rate.
+ *
+ * The stream is read from a file (text or binary format) or created while it is replayed.
+ *
+ * @version 1.0
+ */
+public class StreamReplay implements TweetConsumer {
+	private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+	private OutputStream output;
+	private double speedUp;
+	private int rate;
+	private TweetEncoder line = new TweetEncoder();
+
+	private long tweets = 0;
+	private long firstTimestamp;
+	private long startNanos;
+	private long lastDue;
+	private long maxLag = 0;
+	private long nextReport;
+
+	/**
+	 * @param output the lines are written to it, flushed before waiting for the next tweet
+	 * @param speedUp speed relative to the creation dates, 0 for no pacing
+	 * @param rate fixed amount of tweets per second, 0 to use the speed-up
+	 */
+	public StreamReplay(OutputStream output, double speedUp, int rate) {
+		this.output = output;
+		this.speedUp = speedUp;
+		this.rate = rate;
+	}
+
+	/**
+	 * Usage: StreamReplay [streamFile]
+	 * Without a file the stream is created with the current GlobalParameters while it is replayed.
+	 */
+	public static void main(String[] args) {
+		try {
+			if (GlobalParameters.REPLAY_PIPE != null) {
+				// opening a named pipe waits for the reader
+				try (OutputStream pipe = new FileOutputStream(GlobalParameters.REPLAY_PIPE)) {
+					replay(args.length > 0 ? args[0] : null, pipe);
+				}
+			}
+			else {
+				try (ServerSocket server = new ServerSocket(GlobalParameters.REPLAY_PORT, 1, InetAddress.getLoopbackAddress())) {
+					System.out.println("waiting for a connection on port " + GlobalParameters.REPLAY_PORT);
+					try (Socket socket = server.accept()) {
+						socket.setTcpNoDelay(true);
+						replay(args.length > 0 ? args[0] : null, socket.getOutputStream());
+					}
+				}
+			}
+		} catch (IOException | UncheckedIOException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+	private static void replay(String streamFile, OutputStream target) throws IOException {
+		StreamReplay replay = new StreamReplay(new BufferedOutputStream(target, 1 << 16), GlobalParameters.REPLAY_SPEEDUP,
+				GlobalParameters.REPLAY_RATE);
+		if (streamFile == null) {
+			replay.writeLine(GlobalParameters.TWITTER_HEADER);
+			new Stream(replay);
+		}
+		else {
+			replay.replay(streamFile);
+		}
+	}
+
+	/**
+	 * Replays a stream file in the text or the binary format.
+	 */
+	public void replay(String streamFile) throws IOException {
+		if (BinaryTweetFormat.isBinary(streamFile)) {
+			replayBinary(streamFile);
+		}
+		else {
+			replayText(streamFile);
+		}
+		end();
+	}
+
+	private void replayText(String streamFile) throws IOException {
+		SimpleDateFormat format = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		String lastDate = null;
+		long timestamp = 0;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(streamFile), StandardCharsets.UTF_8), 1 << 16)) {
+			String text;
+			while ((text = reader.readLine()) != null) {
+				int dateStart = text.indexOf('\t') + 1;
+				int dateEnd = dateStart == 0 ? -1 : text.indexOf('\t', dateStart);
+				if (text.startsWith("#") || dateEnd == -1 || text.equals(GlobalParameters.TWITTER_HEADER)) {
+					// header and comments are not paced
+					writeLine(text);
+					continue;
+				}
+
+				// the tweets of a second share their date
+				String date = text.substring(dateStart, dateEnd);
+				if (!date.equals(lastDate)) {
+					try {
+						timestamp = format.parse(date).getTime();
+					} catch (ParseException e) {
+						throw new IOException("invalid creation date: " + text);
+					}
+					lastDate = date;
+				}
+				pace(timestamp);
+				writeLine(text);
+			}
+		}
+	}
+
+	private void replayBinary(String streamFile) throws IOException {
+		// the creation dates are written like the stream does
+		TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+		writeLine(GlobalParameters.TWITTER_HEADER);
+		try (BinaryTweetFormat.Reader reader = new BinaryTweetFormat.Reader(streamFile)) {
+			byte[][] terms = TweetEncoder.encodeTerms(reader.getDictionary());
+			while (reader.next()) {
+				pace(reader.getTimestamp());
+				line.reset();
+				line.appendTweetId(reader.getTweetId());
+				line.append('\t');
+				line.appendDate(reader.getTimestamp());
+				line.append('\t');
+				for (int i = 0; i < reader.getTermCount(); i++) {
+					if (i > 0) {
+						line.append(' ');
+					}
+					line.append(terms[reader.getTermId(i)]);
+				}
+				line.endLine();
+				line.writeTo(output);
+			}
+		}
+	}
+
+	@Override
+	public void tweet(long tweetId, long timestamp, String content) {
+		try {
+			pace(timestamp);
+			line.reset();
+			line.appendTweetId(tweetId);
+			line.append('\t');
+			line.appendDate(timestamp);
+			line.append('\t');
+			line.append(content.getBytes(StandardCharsets.UTF_8));
+			line.endLine();
+			line.writeTo(output);
+		} catch (IOException e) {
+			// the receiver is gone, stops the creation of the stream
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void end() {
+		try {
+			output.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		report();
+	}
+
+	private void writeLine(String text) throws IOException {
+		line.reset();
+		line.appendLine(text);
+		line.writeTo(output);
+	}
+
+	/**
+	 * Waits until the tweet with the given creation date is due.
+	 */
+	private void pace(long timestamp) throws IOException {
+		long now = System.nanoTime();
+		if (tweets == 0) {
+			firstTimestamp = timestamp;
+			startNanos = now;
+			nextReport = now + REPORT_INTERVAL;
+		}
+
+		long due;
+		if (rate > 0) {
+			due = startNanos + (long)(tweets * 1e9 / rate);
+		}
+		else if (speedUp > 0) {
+			due = startNanos + (long)(TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / speedUp);
+		}
+		else {
+			due = now;
+		}
+
+		if (due > now) {
+			// the receiver gets everything before the wait
+			output.flush();
+			while ((now = System.nanoTime()) < due) {
+				LockSupport.parkNanos(due - now);
+			}
+		}
+		else {
+			maxLag = Math.max(maxLag, now - due);
+		}
+		lastDue = due;
+		tweets++;
+
+		if (now >= nextReport) {
+			report();
+			nextReport = now + REPORT_INTERVAL;
+		}
+	}
+
+	private void report() {
+		if (tweets == 0) {
+			System.out.println("replayed 0 tweets");
+			return;
+		}
+		long elapsed = System.nanoTime() - startNanos;
+		String target;
+		if (rate > 0) {
+			target = rate + " tweets/s";
+		}
+		else if (speedUp > 0 && lastDue > startNanos) {
+			target = String.format(Locale.US, "%.1f tweets/s", (tweets - 1) * 1e9 / (lastDue - startNanos));
+		}
+		else {
+			target = "unpaced";
+		}
+		System.out.println(String.format(Locale.US, "replayed %d tweets in %.1f s, achieved %.1f tweets/s, target %s, max lag %d ms",
+				tweets, elapsed / 1e9, elapsed == 0 ? 0 : (tweets - 1) * 1e9 / elapsed, target, TimeUnit.NANOSECONDS.toMillis(maxLag)));
+	}
+}
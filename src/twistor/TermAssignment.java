@@ -0,0 +1,80 @@
+/*
+ * @(#)TermAssignment.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.util.Arrays;
+
+/**
+ * Assigns the terms of a window to its tweets.
+ *
+ * The terms are sorted by their count (descending, ties by term id). Every tweet takes the first terms that are still
+ * available and decrements their counts. Terms are only taken from the front of the live region, so terms that are
+ * used up are removed by moving the remaining taken terms towards the end and advancing the start of the region.
+ * A tweet therefore costs O(terms of the tweet) without boxing, hashing or re-sorting.
+ *
+ * @version 1.0
+ */
+class TermAssignment {
+	private int[] termIds;
+	private int[] counts;
+	private int head = 0;
+
+	/**
+	 * @param termIds ids of the terms, only the first size entries are used
+	 * @param counts counts of the terms, terms with a count of 0 are skipped
+	 * @param size amount of terms
+	 */
+	TermAssignment(int[] termIds, int[] counts, int size) {
+		long[] keys = new long[size];
+		int live = 0;
+		for (int i = 0; i < size; i++) {
+			if (counts[i] > 0) {
+				keys[live++] = ((long)(Integer.MAX_VALUE - counts[i]) << 32) | termIds[i];
+			}
+		}
+		Arrays.sort(keys, 0, live);
+
+		this.termIds = new int[live];
+		this.counts = new int[live];
+		for (int i = 0; i < live; i++) {
+			this.termIds[i] = (int)keys[i];
+			this.counts[i] = Integer.MAX_VALUE - (int)(keys[i] >>> 32);
+		}
+	}
+
+	/**
+	 * Takes up to termAmount terms for the next tweet.
+	 * @param termAmount amount of terms of the tweet
+	 * @param tweetTerms array the term ids are written to, must have room for termAmount terms after offset
+	 * @param offset position of the first term in tweetTerms
+	 * @return amount of terms written
+	 */
+	int nextTweet(int termAmount, int[] tweetTerms, int offset) {
+		int taken = Math.min(termAmount, termIds.length - head);
+		int last = head + taken - 1;
+
+		// walk the taken terms backwards and keep the ones still available right-aligned at last
+		int write = last;
+		for (int i = last; i >= head; i--) {
+			int termId = termIds[i];
+			int count = counts[i] - 1;
+			tweetTerms[offset + (i - head)] = termId;
+			if (count > 0) {
+				termIds[write] = termId;
+				counts[write] = count;
+				write--;
+			}
+		}
+		head = write + 1;
+
+		return taken;
+	}
+
+	/**
+	 * Amount of terms which are still available.
+	 */
+	int remaining() {
+		return termIds.length - head;
+	}
+}
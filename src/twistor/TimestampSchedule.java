@@ -0,0 +1,103 @@
+/*
+ * @(#)TimestampSchedule.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.util.Arrays;
+
+/**
+ * Creation timestamps of the tweets of one window.
+ *
+ * The tweets are spread evenly over the window: with less tweets than seconds every tweet is ceil(seconds per tweet)
+ * seconds after the previous one, otherwise floor(tweets per second) tweets share a second. Timestamps never pass
+ * the end of the window. In the same pass the tweets are grouped into idf windows, a new idf window starts with
+ * the first tweet that is IDF_WINDOW seconds or more after the start of the current one.
+ *
+ * The timestamps are computed from the position of the tweet instead of being stored, so a schedule only needs memory
+ * for its idf windows and can be reused for any number of windows.
+ *
+ * @version 1.0
+ */
+class TimestampSchedule {
+	private long start;
+	private long end;
+	private long increase; // milliseconds between two tweets, 0 if tweets share a second
+	private int tweetsPerSecond;
+	private int size = 0;
+	private int[] idfWindowStarts = new int[16]; // index of the first tweet of every idf window, followed by size
+	private int idfWindowCount = 0;
+
+	/**
+	 * Creates the timestamps of a window.
+	 * @param start the timestamp of the window start in milliseconds, the first tweet is placed relative to it
+	 * @param tweetCount amount of tweets in the window
+	 * @param windowSizeInSeconds length of the window
+	 * @param idfWindowInSeconds length of an idf window
+	 */
+	void create(long start, int tweetCount, int windowSizeInSeconds, int idfWindowInSeconds) {
+		size = tweetCount;
+		idfWindowCount = 0;
+		if (tweetCount == 0) {
+			idfWindowStarts[0] = 0;
+			return;
+		}
+
+		this.start = start;
+		end = start + windowSizeInSeconds * 1000L;
+		double secondPerTweet = (double)windowSizeInSeconds / tweetCount;
+		increase = 0;
+		tweetsPerSecond = 0;
+		if (secondPerTweet < 1) {
+			tweetsPerSecond = (int)Math.floor(1 / secondPerTweet);
+		}
+		else {
+			increase = (long)Math.ceil(secondPerTweet) * 1000;
+		}
+
+		long idfWindowStart = 0;
+		for (int i = 0; i < tweetCount; i++) {
+			long second = get(i) / 1000;
+			if (i == 0 || second - idfWindowStart >= idfWindowInSeconds) {
+				addIdfWindow(i);
+				idfWindowStart = second;
+			}
+		}
+		idfWindowStarts[idfWindowCount] = tweetCount;
+	}
+
+	int size() {
+		return size;
+	}
+
+	long get(int tweet) {
+		long timestamp = tweetsPerSecond == 0 ? start + (tweet + 1) * increase : start + (long)(tweet / tweetsPerSecond) * 1000;
+		return Math.min(timestamp, end - 1000);
+	}
+
+	long getLast() {
+		return get(size - 1);
+	}
+
+	int getIdfWindowCount() {
+		return idfWindowCount;
+	}
+
+	/**
+	 * Index of the first tweet of the idf window, getIdfWindowStart(getIdfWindowCount()) is the amount of tweets.
+	 */
+	int getIdfWindowStart(int idfWindow) {
+		return idfWindowStarts[idfWindow];
+	}
+
+	int getIdfWindowTweetCount(int idfWindow) {
+		return idfWindowStarts[idfWindow + 1] - idfWindowStarts[idfWindow];
+	}
+
+	private void addIdfWindow(int firstTweet) {
+		// one more entry for the end
+		if (idfWindowCount + 2 > idfWindowStarts.length) {
+			idfWindowStarts = Arrays.copyOf(idfWindowStarts, idfWindowStarts.length * 2);
+		}
+		idfWindowStarts[idfWindowCount++] = firstTweet;
+	}
+}
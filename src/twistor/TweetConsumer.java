@@ -0,0 +1,24 @@
+/*
+ * @(#)TweetConsumer.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+/**
+ * Receives the tweets of the simulated stream in stream order, instead of the output file.
+ *
+ * @version 1.0
+ */
+public interface TweetConsumer {
+
+	/**
+	 * @param tweetId id of the tweet
+	 * @param timestamp creation date in milliseconds
+	 * @param content the terms of the tweet separated by spaces, the same as in the output file
+	 */
+	void tweet(long tweetId, long timestamp, String content);
+
+	/**
+	 * Called after the last tweet of the stream.
+	 */
+	void end();
+}
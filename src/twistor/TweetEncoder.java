@@ -0,0 +1,144 @@
+/*
+ * @(#)TweetEncoder.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Encodes the lines of the simulated stream as UTF-8 into a reusable byte buffer.
+ *
+ * A tweet line is written field by field (id, creation date, terms) without creating strings. The terms are given
+ * in their pre-encoded UTF-8 form and the creation date is rendered once per second.
+ *
+ * @version 1.0
+ */
+class TweetEncoder {
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+	private static final int ID_DIGITS = 18;
+
+	private byte[] bytes = new byte[1 << 16];
+	private int length = 0;
+
+	private Date date = new Date();
+	private long cachedSecond = Long.MIN_VALUE;
+	private byte[] cachedDate;
+
+	/**
+	 * Pre-encodes the given terms as UTF-8.
+	 */
+	static byte[][] encodeTerms(String[] terms) {
+		byte[][] encoded = new byte[terms.length][];
+		for (int i = 0; i < terms.length; i++) {
+			encoded[i] = terms[i] == null ? new byte[0] : terms[i].getBytes(StandardCharsets.UTF_8);
+		}
+		return encoded;
+	}
+
+	/**
+	 * Appends the tweet id zero-padded to 18 digits, the same as String.format("%018d", id).
+	 */
+	void appendTweetId(long id) {
+		ensure(ID_DIGITS);
+		for (int i = length + ID_DIGITS - 1; i >= length; i--) {
+			bytes[i] = (byte)('0' + id % 10);
+			id /= 10;
+		}
+		length += ID_DIGITS;
+	}
+
+	/**
+	 * Appends the creation date in the format of Date.toString().
+	 */
+	void appendDate(long milliseconds) {
+		long second = Math.floorDiv(milliseconds, 1000);
+		if (second != cachedSecond) {
+			date.setTime(milliseconds);
+			cachedDate = date.toString().getBytes(StandardCharsets.UTF_8);
+			cachedSecond = second;
+		}
+		append(cachedDate);
+	}
+
+	void append(byte[] value) {
+		ensure(value.length);
+		System.arraycopy(value, 0, bytes, length, value.length);
+		length += value.length;
+	}
+
+	void append(char ascii) {
+		ensure(1);
+		bytes[length++] = (byte)ascii;
+	}
+
+	/**
+	 * Appends an unsigned varint (7 bits per byte, least significant first) for the binary output.
+	 */
+	void appendVarLong(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[length++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte)value;
+	}
+
+	/**
+	 * Appends a big-endian int, the same as DataOutputStream.writeInt.
+	 */
+	void appendInt(int value) {
+		ensure(4);
+		bytes[length++] = (byte)(value >>> 24);
+		bytes[length++] = (byte)(value >>> 16);
+		bytes[length++] = (byte)(value >>> 8);
+		bytes[length++] = (byte)value;
+	}
+
+	/**
+	 * Appends a complete line, e.g. the header or a comment.
+	 */
+	void appendLine(String line) {
+		append(line.getBytes(StandardCharsets.UTF_8));
+		endLine();
+	}
+
+	void endLine() {
+		append(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Decodes the bytes from start to the current end.
+	 */
+	String decode(int start) {
+		return new String(bytes, start, length - start, StandardCharsets.UTF_8);
+	}
+
+	int length() {
+		return length;
+	}
+
+	void writeTo(OutputWriter writer) throws IOException {
+		writer.write(bytes, 0, length);
+	}
+
+	void writeTo(OutputStream stream) throws IOException {
+		stream.write(bytes, 0, length);
+	}
+
+	/**
+	 * Empties the buffer for reuse, the capacity is kept.
+	 */
+	void reset() {
+		length = 0;
+	}
+
+	private void ensure(int additional) {
+		if (length + additional > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * @(#)TweetTerms.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.util.Arrays;
+
+/**
+ * Term ids of the tweets of a window in the order they were created by the TermAssignment.
+ *
+ * Consecutive tweets get the same terms until one of them is used up or the amount of terms changes, so the tweets
+ * are stored as runs of equal tweets. A window needs memory for its terms, not for its tweets.
+ *
+ * @version 1.0
+ */
+class TweetTerms {
+	private int[] runStarts = new int[64]; // first tweet of every run
+	private int[] runOffsets = new int[65]; // the terms of run r are runTerms[runOffsets[r]..runOffsets[r + 1]]
+	private int[] runTerms = new int[256];
+	private int runCount = 0;
+	private int size = 0;
+
+	/**
+	 * Adds the next tweet.
+	 * @param termIds term ids of the tweet, only the first termCount entries are used
+	 * @param termCount amount of terms of the tweet
+	 */
+	void add(int[] termIds, int termCount) {
+		if (runCount > 0 && isLastRun(termIds, termCount)) {
+			size++;
+			return;
+		}
+
+		if (runCount == runStarts.length) {
+			runStarts = Arrays.copyOf(runStarts, runCount * 2);
+			runOffsets = Arrays.copyOf(runOffsets, runCount * 2 + 1);
+		}
+		int offset = runOffsets[runCount];
+		if (offset + termCount > runTerms.length) {
+			runTerms = Arrays.copyOf(runTerms, Math.max(runTerms.length * 2, offset + termCount));
+		}
+		System.arraycopy(termIds, 0, runTerms, offset, termCount);
+		runStarts[runCount] = size++;
+		runOffsets[++runCount] = offset + termCount;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Run of the tweet, its terms are getTerm(getStart(run))..getTerm(getEnd(run) - 1).
+	 */
+	int getRun(int tweet) {
+		int run = Arrays.binarySearch(runStarts, 0, runCount, tweet);
+		return run >= 0 ? run : -run - 2;
+	}
+
+	int getStart(int run) {
+		return runOffsets[run];
+	}
+
+	int getEnd(int run) {
+		return runOffsets[run + 1];
+	}
+
+	int getTerm(int index) {
+		return runTerms[index];
+	}
+
+	private boolean isLastRun(int[] termIds, int termCount) {
+		int offset = runOffsets[runCount - 1];
+		if (runOffsets[runCount] - offset != termCount) {
+			return false;
+		}
+		for (int i = 0; i < termCount; i++) {
+			if (runTerms[offset + i] != termIds[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,485 @@
+/*
+ * @(#)TwistorBase.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Pre-decoded binary form of the Twistor base (stream.zip).
+ *
+ * The file starts with a fixed header followed by the term dictionary. After that one section per file input of
+ * the zip is stored. A section holds the term counts column-oriented (one column per term) and the amount of terms
+ * in tweets in the same layout. A column stores the prefix sums of the minute counts, starting with 0, so the sum of
+ * any minute range is the difference of two entries. All counts are little endian ints, so a section can be mapped
+ * directly as {@link IntBuffer} instead of being parsed. The section index is stored at the end of the file.
+ *
+ * @version 1.0
+ */
+public class TwistorBase implements Closeable {
+	private static final int MAGIC = 0x54574231; // TWB1
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * Region of the binary base for one file input of the zip (minutes start..end).
+	 */
+	public class Section {
+		private int start;
+		private int end;
+		private int[] amountKeys;
+		private long termCountsOffset;
+		private long amountCountsOffset;
+
+		private Section(int start, int end, int[] amountKeys, long termCountsOffset, long amountCountsOffset) {
+			this.start = start;
+			this.end = end;
+			this.amountKeys = amountKeys;
+			this.termCountsOffset = termCountsOffset;
+			this.amountCountsOffset = amountCountsOffset;
+		}
+
+		public int getStart() {
+			return start;
+		}
+
+		public int getEnd() {
+			return end;
+		}
+
+		public int getMinutes() {
+			return end - start + 1;
+		}
+
+		/***
+		 * Length of a column, the prefix sums of all minutes plus the leading 0.
+		 * @return
+		 */
+		public int getColumnLength() {
+			return getMinutes() + 1;
+		}
+
+		/***
+		 * Amounts of terms in tweets, in the row order of {@link #mapAmountCounts()}.
+		 * @return
+		 */
+		public int[] getAmountKeys() {
+			return amountKeys;
+		}
+
+		/***
+		 * Maps the term counts of this section, column of term i starts at i * getColumnLength().
+		 * @return
+		 * @throws IOException
+		 */
+		public IntBuffer mapTermCounts() throws IOException {
+			return map(termCountsOffset, (long)terms.length * getColumnLength(), false);
+		}
+
+		/***
+		 * Same as {@link #mapTermCounts()}, but the mapped data is read into memory before it is returned.
+		 * @return
+		 * @throws IOException
+		 */
+		public IntBuffer loadTermCounts() throws IOException {
+			return map(termCountsOffset, (long)terms.length * getColumnLength(), true);
+		}
+
+		/***
+		 * Maps the amount of terms in tweets of this section, column of getAmountKeys()[i] starts at i * getColumnLength().
+		 * @return
+		 * @throws IOException
+		 */
+		public IntBuffer mapAmountCounts() throws IOException {
+			return map(amountCountsOffset, (long)amountKeys.length * getColumnLength(), false);
+		}
+
+		/***
+		 * Same as {@link #mapAmountCounts()}, but the mapped data is read into memory before it is returned.
+		 * @return
+		 * @throws IOException
+		 */
+		public IntBuffer loadAmountCounts() throws IOException {
+			return map(amountCountsOffset, (long)amountKeys.length * getColumnLength(), true);
+		}
+
+		/***
+		 * Size of the term counts and the amount of terms in tweets of this section in bytes.
+		 * @return
+		 */
+		public long getSize() {
+			return ((long)terms.length + amountKeys.length) * getColumnLength() * 4;
+		}
+
+		public String toString() {
+			return start + " -> " + end;
+		}
+	}
+
+	private FileChannel channel;
+	private int fileWindow;
+	private int countAllMinutes;
+	private String[] terms;
+	private List<Section> sections = new ArrayList<>();
+
+	private TwistorBase(String binaryFile) throws IOException {
+		channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ);
+
+		ByteBuffer header = read(0, HEADER_SIZE);
+		if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+			channel.close();
+			throw new IOException(binaryFile + " is not a twistor base of version " + VERSION);
+		}
+		fileWindow = header.getInt();
+		countAllMinutes = header.getInt();
+		terms = new String[header.getInt()];
+		int sectionCount = header.getInt();
+		long indexOffset = header.getLong();
+
+		// section index
+		ByteBuffer index = read(indexOffset, (int)(channel.size() - indexOffset));
+		for (int i = 0; i < sectionCount; i++) {
+			int start = index.getInt();
+			int end = index.getInt();
+			int[] amountKeys = new int[index.getInt()];
+			index.asIntBuffer().get(amountKeys);
+			index.position(index.position() + amountKeys.length * 4);
+			sections.add(new Section(start, end, amountKeys, index.getLong(), index.getLong()));
+		}
+
+		// terms, the dictionary ends where the counts of the first section start
+		long termsEnd = sections.isEmpty() ? indexOffset : sections.get(0).termCountsOffset;
+		ByteBuffer termBuffer = read(HEADER_SIZE, (int)(termsEnd - HEADER_SIZE));
+		for (int i = 0; i < terms.length; i++) {
+			byte[] bytes = new byte[termBuffer.getInt()];
+			termBuffer.get(bytes);
+			terms[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/***
+	 * Opens the binary base. If it does not exist yet, is older than the zip or has another version, it is converted
+	 * from the zip first.
+	 * @param zipFile
+	 * @param binaryFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static TwistorBase open(String zipFile, String binaryFile) throws IOException {
+		File binary = new File(binaryFile);
+		File zip = new File(zipFile);
+		if (!binary.exists() || (zip.exists() && zip.lastModified() > binary.lastModified()) || !isCurrentVersion(binaryFile)) {
+			convert(zipFile, binaryFile);
+		}
+		return new TwistorBase(binaryFile);
+	}
+
+	private static boolean isCurrentVersion(String binaryFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0);
+			header.flip();
+			return header.remaining() == 8 && header.getInt() == MAGIC && header.getInt() == VERSION;
+		}
+	}
+
+	public int getFileWindow() {
+		return fileWindow;
+	}
+
+	public int getCountAllMinutes() {
+		return countAllMinutes;
+	}
+
+	public String[] getTerms() {
+		return terms;
+	}
+
+	public List<Section> getSections() {
+		return Collections.unmodifiableList(sections);
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private IntBuffer map(long offset, long ints, boolean load) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, ints * 4);
+		if (load) {
+			buffer.load();
+		}
+		return buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	private ByteBuffer read(long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0);
+		buffer.flip();
+		return buffer;
+	}
+
+	/***
+	 * Converts the Twistor base zip into the binary base. Only needed once per zip.
+	 * @param zipFile
+	 * @param binaryFile
+	 * @throws IOException
+	 */
+	public static void convert(String zipFile, String binaryFile) throws IOException {
+		System.out.println("Converting " + zipFile + " to " + binaryFile + "...");
+
+		File tmpFile = new File(binaryFile + ".tmp");
+		ZipFile zip = new ZipFile(zipFile);
+		try (FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			List<ZipArchiveEntry> entriesList = new ArrayList<>();
+			Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+			while (entries.hasMoreElements()) {
+				entriesList.add(entries.nextElement());
+			}
+
+			// info
+			BufferedReader br = reader(zip, getEntry(entriesList, "info.txt"));
+			br.readLine(); // skip first line
+			String[] data = br.readLine().split("\t");
+			int fileWindow = Integer.valueOf(data[0]);
+			int countAllMinutes = Integer.valueOf(data[1]);
+			int termCount = Integer.valueOf(data[2]);
+			br.close();
+
+			// terms
+			br = reader(zip, getEntry(entriesList, "terms.txt"));
+			br.readLine(); // skip first line
+			List<byte[]> terms = new ArrayList<>(termCount);
+			String line = br.readLine();
+			while (line != null && terms.size() < termCount) {
+				terms.add(line.getBytes(StandardCharsets.UTF_8));
+				line = br.readLine();
+			}
+			br.close();
+			while (terms.size() < termCount) {
+				terms.add(new byte[0]);
+			}
+
+			out.position(HEADER_SIZE);
+			Writer writer = new Writer(out);
+			for (byte[] term : terms) {
+				writer.putInt(term.length);
+				writer.put(term);
+			}
+			writer.align();
+
+			// amount terms in tweets / term counts
+			int fileCount = (int)entriesList.stream().filter(e -> e.getName().startsWith("term_counts_")).count();
+			ByteBuffer index = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+			int start = 0;
+			for (int i = 0; i < fileCount; i++) {
+				int end = start + fileWindow;
+				if (i == fileCount - 1) { // last file
+					end = countAllMinutes;
+				}
+				int minutes = end - start;
+				String range = start + "-" + (end - 1) + ".txt";
+
+				long termCountsOffset = writer.position();
+				br = reader(zip, getEntry(entriesList, "term_counts_" + range));
+				br.readLine(); // skip first line
+				int[] values = new int[minutes + 1];
+				int rows = 0;
+				line = br.readLine();
+				while (line != null && rows < termCount) {
+					parseValues(line, 0, values);
+					writer.putInts(values);
+					line = br.readLine();
+					rows++;
+				}
+				br.close();
+				Arrays.fill(values, 0);
+				for (; rows < termCount; rows++) {
+					writer.putInts(values);
+				}
+
+				long amountCountsOffset = writer.position();
+				br = reader(zip, getEntry(entriesList, "amount_terms_in_tweets_" + range));
+				br.readLine(); // skip first line
+				List<Integer> amountKeys = new ArrayList<>();
+				line = br.readLine();
+				while (line != null) {
+					int tab = line.indexOf('\t');
+					amountKeys.add(Integer.valueOf(line.substring(0, tab)));
+					parseValues(line, tab + 1, values);
+					writer.putInts(values);
+					line = br.readLine();
+				}
+				br.close();
+
+				int indexSize = 12 + amountKeys.size() * 4 + 16;
+				if (index.remaining() < indexSize) {
+					ByteBuffer larger = ByteBuffer.allocate((index.capacity() + indexSize) * 2).order(ByteOrder.LITTLE_ENDIAN);
+					index.flip();
+					index = larger.put(index);
+				}
+				index.putInt(start).putInt(end - 1).putInt(amountKeys.size());
+				for (int amountKey : amountKeys) {
+					index.putInt(amountKey);
+				}
+				index.putLong(termCountsOffset).putLong(amountCountsOffset);
+
+				start = end;
+			}
+
+			long indexOffset = writer.position();
+			index.flip();
+			writer.put(index);
+			writer.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(fileWindow).putInt(countAllMinutes)
+				.putInt(termCount).putInt(fileCount).putLong(indexOffset);
+			header.flip();
+			out.position(0);
+			while (header.hasRemaining()) {
+				out.write(header);
+			}
+		}
+		finally {
+			zip.close();
+		}
+		Files.move(tmpFile.toPath(), Paths.get(binaryFile), StandardCopyOption.REPLACE_EXISTING);
+
+		System.out.println("converted " + zipFile);
+	}
+
+	private static ZipArchiveEntry getEntry(List<ZipArchiveEntry> entriesList, String name) throws IOException {
+		List<ZipArchiveEntry> found = entriesList.stream().filter(e -> e.getName().equals(name)).collect(Collectors.toList());
+		if (found.isEmpty()) {
+			throw new IOException(name + " is missing in the twistor base");
+		}
+		return found.get(0);
+	}
+
+	private static BufferedReader reader(ZipFile zip, ZipArchiveEntry entry) throws IOException {
+		InputStream inputStream = zip.getInputStream(entry);
+		return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 1 << 16);
+	}
+
+	/**
+	 * Parses the comma separated counts of a line starting at offset into the prefix sums values[1..], values[0] is 0.
+	 * Missing values are 0.
+	 */
+	private static void parseValues(String line, int offset, int[] values) {
+		int index = 1;
+		int number = 0;
+		values[0] = 0;
+		for (int i = offset; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == ',') {
+				if (index < values.length) {
+					values[index] = values[index - 1] + number;
+				}
+				number = 0;
+				index++;
+			}
+			else {
+				number = number * 10 + (c - '0');
+			}
+		}
+		if (index < values.length) {
+			values[index] = values[index - 1] + number;
+			index++;
+		}
+		for (; index < values.length; index++) {
+			values[index] = values[index - 1];
+		}
+	}
+
+	/**
+	 * Sequential little endian writer on a file channel.
+	 */
+	private static class Writer {
+		private FileChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private long position;
+
+		private Writer(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.position = channel.position();
+		}
+
+		private long position() {
+			return position;
+		}
+
+		private void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		private void putInts(int[] values) throws IOException {
+			for (int value : values) {
+				putInt(value);
+			}
+		}
+
+		private void put(byte[] bytes) throws IOException {
+			put(ByteBuffer.wrap(bytes));
+		}
+
+		private void put(ByteBuffer bytes) throws IOException {
+			while (bytes.hasRemaining()) {
+				ensure(1);
+				int length = Math.min(buffer.remaining(), bytes.remaining());
+				ByteBuffer slice = bytes.duplicate();
+				slice.limit(slice.position() + length);
+				buffer.put(slice);
+				bytes.position(bytes.position() + length);
+				position += length;
+			}
+		}
+
+		private void align() throws IOException {
+			while (position % 8 != 0) {
+				ensure(1);
+				buffer.put((byte)0);
+				position++;
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
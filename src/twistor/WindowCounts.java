@@ -0,0 +1,69 @@
+/*
+ * @(#)WindowCounts.java   1.0   Oct 18, 2026
+ */
+package twistor;
+
+/**
+ * Counts of the base for the minutes of a window before they are scaled.
+ *
+ * A window overlaps one or more file inputs of the base. The counts of every file input are kept apart, because the
+ * scale is applied to the sum of each file input. The counts do not depend on the scale, so the streams of several
+ * scales are planned from the same counts (see MultiScaleStream). The counts are not changed after they are computed.
+ *
+ * @version 1.0
+ */
+class WindowCounts {
+	private int[] termIds; // terms with a count > 0 in one of the file inputs, ascending
+	private int[][] termCounts; // count of these terms in every file input
+	private int[][] amountTermsCounts; // amount of tweets in every file input, indexed by their amount of terms
+
+	WindowCounts(int[] termIds, int[][] termCounts, int[][] amountTermsCounts) {
+		this.termIds = termIds;
+		this.termCounts = termCounts;
+		this.amountTermsCounts = amountTermsCounts;
+	}
+
+	int[] getTermIds() {
+		return termIds;
+	}
+
+	/**
+	 * Scaled counts of the terms of getTermIds(), a count can become 0 for small scales.
+	 */
+	int[] getTermCounts(int scale) {
+		int[] counts = new int[termIds.length];
+		for (int[] partCounts : termCounts) {
+			for (int i = 0; i < counts.length; i++) {
+				if (partCounts[i] > 0) {
+					counts[i] += scale(partCounts[i], scale);
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Scaled amount of tweets, indexed by their amount of terms.
+	 */
+	int[] getAmountTermsCounts(int scale, int maxAmountTerms) {
+		int[] counts = new int[maxAmountTerms + 1];
+		for (int[] partCounts : amountTermsCounts) {
+			for (int amountTerms = 0; amountTerms < partCounts.length; amountTerms++) {
+				if (partCounts[amountTerms] > 0) {
+					counts[amountTerms] += scale(partCounts[amountTerms], scale);
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Scales a count by scale/10, rounded half up.
+	 */
+	private static int scale(int count, int scale) {
+		if (scale == 10) {
+			return count;
+		}
+		return (int)(((long)count * scale + 5) / 10);
+	}
+}